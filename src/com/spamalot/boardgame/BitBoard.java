@@ -0,0 +1,620 @@
+package com.spamalot.boardgame;
+
+/**
+ * Bitboard representation of a Board for boards of up to 128 Squares.
+ *
+ * <p>
+ * Occupancy and color are kept as two 64 bit words per color, indexed by
+ * {@code rank * numFiles + file}. The one away and two away neighbors of every
+ * Square are precomputed as masks in the shared {@link BoardGeometry} so that
+ * move generation and piece counting become mask operations and popcounts
+ * instead of walks over Square objects.
+ * </p>
+ *
+ * <p>
+ * A BitBoard keeps the same Zobrist key as a {@link Board} holding the same
+ * Pieces. Every Board whose geometry fits keeps one in step with its Squares,
+ * see {@link Board#getBitBoard()}.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class BitBoard {
+
+  /** The largest number of Squares a BitBoard can hold. */
+  public static final int MAX_SQUARES = 128;
+
+  /** Number of bits in a word. */
+  private static final int WORD_SIZE = 64;
+
+  /** The shared topology of this board. */
+  private BoardGeometry geometry;
+
+  /** Low word of the Black pieces. */
+  private long blackLo;
+
+  /** High word of the Black pieces. */
+  private long blackHi;
+
+  /** Low word of the White pieces. */
+  private long whiteLo;
+
+  /** High word of the White pieces. */
+  private long whiteHi;
+
+  /** Zobrist key of the Pieces on the board. */
+  private long hashKey;
+
+  /**
+   * Construct an empty BitBoard of given number of files and ranks.
+   *
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   */
+  public BitBoard(final int files, final int ranks) {
+    this(BoardGeometry.of(files, ranks));
+  }
+
+  /**
+   * Construct an empty BitBoard with a shared geometry.
+   *
+   * @param geo
+   *          the geometry
+   */
+  public BitBoard(final BoardGeometry geo) {
+    if (!geo.hasMasks()) {
+      throw new IllegalArgumentException("BitBoard cannot hold " + geo);
+    }
+    this.geometry = geo;
+  }
+
+  /**
+   * Construct a BitBoard holding the blocked Squares and Pieces of a Board.
+   *
+   * @param board
+   *          the Board to copy
+   */
+  public BitBoard(final Board board) {
+    this(board.getGeometry());
+
+    for (int rank = 0; rank < getNumRanks(); rank++) {
+      for (int file = 0; file < getNumFiles(); file++) {
+        Piece piece = board.getSquareAt(file, rank).getPiece();
+        if (piece != null && !isBlocked(indexOf(file, rank))) {
+          setPiece(indexOf(file, rank), piece.getColor());
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the shared topology of this board.
+   *
+   * @return the geometry.
+   */
+  public BoardGeometry getGeometry() {
+    return this.geometry;
+  }
+
+  /**
+   * Get the number of ranks on this board.
+   *
+   * @return the number of ranks.
+   */
+  public int getNumRanks() {
+    return this.geometry.getNumRanks();
+  }
+
+  /**
+   * Get the number of files on this board.
+   *
+   * @return the number of files.
+   */
+  public int getNumFiles() {
+    return this.geometry.getNumFiles();
+  }
+
+  /**
+   * Get the number of Squares on this board, including blocked ones.
+   *
+   * @return the number of Squares.
+   */
+  public int getNumSquares() {
+    return this.geometry.getNumSquares();
+  }
+
+  /**
+   * Get the index of a Square.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @return the Square index.
+   */
+  public int indexOf(final int file, final int rank) {
+    return this.geometry.indexOf(file, rank);
+  }
+
+  /**
+   * Get the file of a Square index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the file.
+   */
+  public int getFile(final int sq) {
+    return this.geometry.getFile(sq);
+  }
+
+  /**
+   * Get the rank of a Square index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the rank.
+   */
+  public int getRank(final int sq) {
+    return this.geometry.getRank(sq);
+  }
+
+  /**
+   * Set a Square as blocked.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void setBlocked(final int sq) {
+    clearSquare(sq);
+    this.geometry = this.geometry.withBlocked(sq);
+  }
+
+  /**
+   * Check if a Square is blocked.
+   *
+   * @param sq
+   *          the Square index
+   * @return true if the Square is blocked.
+   */
+  public boolean isBlocked(final int sq) {
+    return this.geometry.isBlocked(sq);
+  }
+
+  /**
+   * Check if a Square can hold a Piece and is empty.
+   *
+   * @param sq
+   *          the Square index
+   * @return true if the Square is empty.
+   */
+  public boolean isEmpty(final int sq) {
+    return isSet(getEmptyLo(), getEmptyHi(), sq);
+  }
+
+  /**
+   * Get the color of the Piece in a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the color of the Piece or null if there is none.
+   */
+  public PieceColor getColorAt(final int sq) {
+    if (isSet(this.blackLo, this.blackHi, sq)) {
+      return PieceColor.BLACK;
+    }
+    if (isSet(this.whiteLo, this.whiteHi, sq)) {
+      return PieceColor.WHITE;
+    }
+    return null;
+  }
+
+  /**
+   * Put a Piece of a color in a Square, replacing what is there. Blocked
+   * Squares cannot hold a Piece.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color of the Piece
+   * @throws IllegalArgumentException
+   *           if the Square is blocked
+   */
+  public void setPiece(final int sq, final PieceColor color) {
+    if (isBlocked(sq)) {
+      throw new IllegalArgumentException("Square " + sq + " is blocked");
+    }
+    clearSquare(sq);
+    this.hashKey ^= this.geometry.getZobristKey(sq, color);
+    if (sq < WORD_SIZE) {
+      long bit = 1L << sq;
+      if (color == PieceColor.BLACK) {
+        this.blackLo |= bit;
+      } else {
+        this.whiteLo |= bit;
+      }
+    } else {
+      long bit = 1L << (sq - WORD_SIZE);
+      if (color == PieceColor.BLACK) {
+        this.blackHi |= bit;
+      } else {
+        this.whiteHi |= bit;
+      }
+    }
+  }
+
+  /**
+   * Remove any Piece from a Square.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void clearSquare(final int sq) {
+    PieceColor color = getColorAt(sq);
+    if (color == null) {
+      return;
+    }
+    this.hashKey ^= this.geometry.getZobristKey(sq, color);
+    if (sq < WORD_SIZE) {
+      long bit = ~(1L << sq);
+      this.blackLo &= bit;
+      this.whiteLo &= bit;
+    } else {
+      long bit = ~(1L << (sq - WORD_SIZE));
+      this.blackHi &= bit;
+      this.whiteHi &= bit;
+    }
+  }
+
+  /**
+   * Flip the Piece in a Square to the opposite color. Does nothing to an empty
+   * Square.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void flip(final int sq) {
+    if (sq < WORD_SIZE) {
+      flip(1L << sq, 0L);
+    } else {
+      flip(0L, 1L << (sq - WORD_SIZE));
+    }
+  }
+
+  /**
+   * Flip every Piece in a mask to the opposite color. Empty Squares in the mask
+   * are left alone.
+   *
+   * @param lo
+   *          low word of the mask
+   * @param hi
+   *          high word of the mask
+   */
+  public void flip(final long lo, final long hi) {
+    for (long bits = (this.blackLo | this.whiteLo) & lo; bits != 0; bits &= bits - 1) {
+      flipKey(Long.numberOfTrailingZeros(bits));
+    }
+    for (long bits = (this.blackHi | this.whiteHi) & hi; bits != 0; bits &= bits - 1) {
+      flipKey(Long.numberOfTrailingZeros(bits) + WORD_SIZE);
+    }
+    long bLo = this.blackLo & lo;
+    long bHi = this.blackHi & hi;
+    long wLo = this.whiteLo & lo;
+    long wHi = this.whiteHi & hi;
+    this.blackLo = (this.blackLo ^ bLo) | wLo;
+    this.blackHi = (this.blackHi ^ bHi) | wHi;
+    this.whiteLo = (this.whiteLo ^ wLo) | bLo;
+    this.whiteHi = (this.whiteHi ^ wHi) | bHi;
+  }
+
+  /**
+   * Change the hash key for the Piece in a Square changing color.
+   *
+   * @param sq
+   *          the Square index
+   */
+  private void flipKey(final int sq) {
+    this.hashKey ^= this.geometry.getZobristKey(sq, PieceColor.BLACK)
+        ^ this.geometry.getZobristKey(sq, PieceColor.WHITE);
+  }
+
+  /**
+   * Get the Zobrist key of the Pieces on the board. The side to move is not
+   * part of it.
+   *
+   * @return the key.
+   */
+  public long getHashKey() {
+    return this.hashKey;
+  }
+
+  /**
+   * Flip every opposing Piece one away from a Square to the given color.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color to flip to
+   * @return the number of Pieces flipped.
+   */
+  public int captureOneAway(final int sq, final PieceColor color) {
+    long lo = this.geometry.getOneAwayLo(sq) & getColorLo(color.getOpposite());
+    long hi = this.geometry.getOneAwayHi(sq) & getColorHi(color.getOpposite());
+    flip(lo, hi);
+    return Long.bitCount(lo) + Long.bitCount(hi);
+  }
+
+  /**
+   * Count the Pieces of a color one away from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color to count
+   * @return the number of Pieces.
+   */
+  public int countOneAway(final int sq, final PieceColor color) {
+    return Long.bitCount(this.geometry.getOneAwayLo(sq) & getColorLo(color))
+        + Long.bitCount(this.geometry.getOneAwayHi(sq) & getColorHi(color));
+  }
+
+  /**
+   * Fill a mask with the empty Squares one away from any Piece of a color.
+   * These are the targets of drop moves in Ataxx like games.
+   *
+   * @param color
+   *          the color to move
+   * @param targets
+   *          array of at least two words receiving the low and high words
+   */
+  public void fillOneAwayTargets(final PieceColor color, final long[] targets) {
+    long lo = 0;
+    long hi = 0;
+    for (long bits = getColorLo(color); bits != 0; bits &= bits - 1) {
+      int sq = Long.numberOfTrailingZeros(bits);
+      lo |= this.geometry.getOneAwayLo(sq);
+      hi |= this.geometry.getOneAwayHi(sq);
+    }
+    for (long bits = getColorHi(color); bits != 0; bits &= bits - 1) {
+      int sq = Long.numberOfTrailingZeros(bits) + WORD_SIZE;
+      lo |= this.geometry.getOneAwayLo(sq);
+      hi |= this.geometry.getOneAwayHi(sq);
+    }
+    targets[0] = lo & getEmptyLo();
+    targets[1] = hi & getEmptyHi();
+  }
+
+  /**
+   * Fill a mask with the Pieces of a color that are two away from a Square.
+   * These are the sources of jump moves to that Square in Ataxx like games.
+   *
+   * @param sq
+   *          the Square index being moved to
+   * @param color
+   *          the color to move
+   * @param sources
+   *          array of at least two words receiving the low and high words
+   */
+  public void fillTwoAwaySources(final int sq, final PieceColor color, final long[] sources) {
+    sources[0] = this.geometry.getTwoAwayLo(sq) & getColorLo(color);
+    sources[1] = this.geometry.getTwoAwayHi(sq) & getColorHi(color);
+  }
+
+  /**
+   * Get the low word of the one away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the low word of the mask.
+   */
+  public long getOneAwayLo(final int sq) {
+    return this.geometry.getOneAwayLo(sq);
+  }
+
+  /**
+   * Get the high word of the one away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the high word of the mask.
+   */
+  public long getOneAwayHi(final int sq) {
+    return this.geometry.getOneAwayHi(sq);
+  }
+
+  /**
+   * Get the low word of the two away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the low word of the mask.
+   */
+  public long getTwoAwayLo(final int sq) {
+    return this.geometry.getTwoAwayLo(sq);
+  }
+
+  /**
+   * Get the high word of the two away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the high word of the mask.
+   */
+  public long getTwoAwayHi(final int sq) {
+    return this.geometry.getTwoAwayHi(sq);
+  }
+
+  /**
+   * Get the low word of the Pieces of a color.
+   *
+   * @param color
+   *          the color
+   * @return the low word of the mask.
+   */
+  public long getColorLo(final PieceColor color) {
+    return color == PieceColor.BLACK ? this.blackLo : this.whiteLo;
+  }
+
+  /**
+   * Get the high word of the Pieces of a color.
+   *
+   * @param color
+   *          the color
+   * @return the high word of the mask.
+   */
+  public long getColorHi(final PieceColor color) {
+    return color == PieceColor.BLACK ? this.blackHi : this.whiteHi;
+  }
+
+  /**
+   * Get the low word of the empty Squares.
+   *
+   * @return the low word of the mask.
+   */
+  public long getEmptyLo() {
+    return this.geometry.getPlayableLo() & ~(this.blackLo | this.whiteLo);
+  }
+
+  /**
+   * Get the high word of the empty Squares.
+   *
+   * @return the high word of the mask.
+   */
+  public long getEmptyHi() {
+    return this.geometry.getPlayableHi() & ~(this.blackHi | this.whiteHi);
+  }
+
+  /**
+   * Get the number of Black Pieces.
+   *
+   * @return the Black count.
+   */
+  public int getBlackCount() {
+    return Long.bitCount(this.blackLo) + Long.bitCount(this.blackHi);
+  }
+
+  /**
+   * Get the number of White Pieces.
+   *
+   * @return the White count.
+   */
+  public int getWhiteCount() {
+    return Long.bitCount(this.whiteLo) + Long.bitCount(this.whiteHi);
+  }
+
+  /**
+   * Get the number of empty Squares that can be played to.
+   *
+   * @return the empty count.
+   */
+  public int getEmptyCount() {
+    return Long.bitCount(getEmptyLo()) + Long.bitCount(getEmptyHi());
+  }
+
+  /**
+   * Get the PieceCount object for this board.
+   *
+   * @return PieceCount object with count values.
+   */
+  public PieceCount getPieceCount() {
+    return new PieceCount(getBlackCount(), getWhiteCount());
+  }
+
+  /**
+   * Copy the blocked Squares and Pieces of another BitBoard of the same size
+   * into this one. The geometry is shared, so only the occupancy words are
+   * copied.
+   *
+   * @param other
+   *          the BitBoard to copy
+   */
+  public void copyFrom(final BitBoard other) {
+    if (other.getNumFiles() != getNumFiles() || other.getNumRanks() != getNumRanks()) {
+      throw new IllegalArgumentException("BitBoard sizes differ");
+    }
+    this.geometry = other.geometry;
+    this.blackLo = other.blackLo;
+    this.blackHi = other.blackHi;
+    this.whiteLo = other.whiteLo;
+    this.whiteHi = other.whiteHi;
+    this.hashKey = other.hashKey;
+  }
+
+  /**
+   * Write a rotated or reflected copy of this BitBoard into another one.
+   *
+   * @param symmetry
+   *          the Symmetry, which the geometry must have
+   * @param dest
+   *          the BitBoard to write to, which must not be this one
+   */
+  public void transformInto(final Symmetry symmetry, final BitBoard dest) {
+    int[] map = this.geometry.getTransform(symmetry);
+    if (map == null) {
+      throw new IllegalArgumentException(this.geometry + " does not have " + symmetry);
+    }
+    dest.geometry = this.geometry;
+    dest.blackLo = 0;
+    dest.blackHi = 0;
+    dest.whiteLo = 0;
+    dest.whiteHi = 0;
+    dest.hashKey = 0;
+    for (int sq = 0; sq < map.length; sq++) {
+      PieceColor color = getColorAt(sq);
+      if (color != null) {
+        dest.setPiece(map[sq], color);
+      }
+    }
+  }
+
+  /**
+   * Check if a bit is set in a two word mask.
+   *
+   * @param lo
+   *          low word
+   * @param hi
+   *          high word
+   * @param sq
+   *          the Square index
+   * @return true if the bit is set.
+   */
+  private static boolean isSet(final long lo, final long hi, final int sq) {
+    if (sq < WORD_SIZE) {
+      return (lo & (1L << sq)) != 0;
+    }
+    return (hi & (1L << (sq - WORD_SIZE))) != 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("   ");
+    for (int j = 0; j < getNumFiles(); j++) {
+      sb.append((char) ('a' + j));
+    }
+    sb.append("\n\n");
+
+    for (int i = 0; i < getNumRanks(); i++) {
+      sb.append(i + 1);
+      sb.append("  ");
+      for (int j = 0; j < getNumFiles(); j++) {
+        int sq = indexOf(j, i);
+        if (isBlocked(sq)) {
+          sb.append('X');
+        } else {
+          PieceColor color = getColorAt(sq);
+          if (color == null) {
+            sb.append(".");
+          } else {
+            sb.append(color);
+          }
+        }
+      }
+      sb.append("\n");
+    }
+
+    return sb.toString();
+  }
+}
@@ -1,7 +1,10 @@
 package com.spamalot.boardgame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Board for board games.
@@ -20,8 +23,38 @@ public abstract class Board {
   /** The number of files on this board. */
   private int numFiles;
 
-  /** Number of Blocked Squares. */
-  private int numBlockedSquares;
+  /** The shared topology of this board. */
+  private BoardGeometry geometry;
+
+  /** Number of Black Pieces on the board. */
+  private int blackCount;
+
+  /** Number of White Pieces on the board. */
+  private int whiteCount;
+
+  /** Zobrist key of the Pieces on the board. */
+  private long hashKey;
+
+  /**
+   * True once a mutable Piece has been put on the board. Restored Squares then
+   * get mutable Pieces too.
+   */
+  private boolean mutablePieces;
+
+  /**
+   * The Pieces as masks, kept in step with the Squares. Null when the board is
+   * too large for a BitBoard.
+   */
+  private BitBoard bitBoard;
+
+  /** Number of longs ahead of the Squares in a snapshot. */
+  private static final int SNAPSHOT_HEADER = 2;
+
+  /** Number of Squares packed into each long of a snapshot. */
+  private static final int SQUARES_PER_WORD = 32;
+
+  /** The colors by ordinal. */
+  private static final PieceColor[] COLORS = PieceColor.values();
 
   /**
    * Construct a square board of given size.
@@ -44,10 +77,55 @@ public abstract class Board {
   Board(final int files, final int ranks) {
     this.setNumFiles(files);
     this.setNumRanks(ranks);
+    this.geometry = BoardGeometry.of(files, ranks);
 
     this.setSquares(new Square[ranks][files]);
 
     initBoard();
+    this.bitBoard = newBitBoard();
+  }
+
+  /**
+   * Construct a copy of a Board. The geometry is shared with the other Board,
+   * so only the Squares and their Pieces are created.
+   * 
+   * @param other
+   *          the Board to copy
+   */
+  protected Board(final Board other) {
+    this.setNumFiles(other.getNumFiles());
+    this.setNumRanks(other.getNumRanks());
+    this.geometry = other.geometry;
+    this.mutablePieces = other.mutablePieces;
+
+    this.setSquares(new Square[this.numRanks][this.numFiles]);
+
+    initBoard();
+    this.bitBoard = newBitBoard();
+    makeCopyOfPiecesInSquaresFromBoard(other);
+  }
+
+  /**
+   * Make a BitBoard holding the Pieces of this Board, if the geometry fits.
+   * 
+   * @return the BitBoard, or null if the board is too large.
+   */
+  private BitBoard newBitBoard() {
+    return this.geometry.hasMasks() ? new BitBoard(this) : null;
+  }
+
+  /**
+   * Get the Pieces of this Board as masks, for move generation and counting
+   * with mask operations instead of walks over Squares. The BitBoard is kept
+   * in step with the Squares as Pieces are put, taken, flipped, restored and
+   * undone, and has the same hash key. It belongs to this Board and must only
+   * be read.
+   * 
+   * @return the BitBoard, or null if the board has more than
+   *         {@value BitBoard#MAX_SQUARES} Squares.
+   */
+  public final BitBoard getBitBoard() {
+    return this.bitBoard;
   }
 
   /**
@@ -64,11 +142,51 @@ public abstract class Board {
   private void initBoard() {
     for (int file = 0; file < getNumFiles(); file++) {
       for (int rank = 0; rank < getNumRanks(); rank++) {
-        this.squares[rank][file] = new Square(file, rank);
+        if (this.geometry.isBlocked(this.geometry.indexOf(file, rank))) {
+          this.squares[rank][file] = new Square(Square.Type.BLOCKED, file, rank);
+        } else {
+          this.squares[rank][file] = new Square(file, rank);
+        }
+        this.squares[rank][file].setBoard(this);
       }
     }
   }
 
+  /**
+   * Get the Squares at some Square indices.
+   * 
+   * @param indices
+   *          the Square indices
+   * @return the Squares.
+   */
+  final Square[] toSquares(final int[] indices) {
+    Square[] ret = new Square[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      ret[i] = getSquareAt(indices[i]);
+    }
+    return ret;
+  }
+
+  /**
+   * Get a Square from the Board using a Square index.
+   * 
+   * @param index
+   *          the Square index, {@code rank * numFiles + file}
+   * @return the Square.
+   */
+  public final Square getSquareAt(final int index) {
+    return this.squares[this.geometry.getRank(index)][this.geometry.getFile(index)];
+  }
+
+  /**
+   * Get the shared topology of this Board.
+   * 
+   * @return the geometry.
+   */
+  public final BoardGeometry getGeometry() {
+    return this.geometry;
+  }
+
   /**
    * Get a Square from the Board.
    * 
@@ -155,35 +273,11 @@ public abstract class Board {
    * 
    * @param sq
    *          The Square
-   * @return a List of Squares that are direct neighbors of the one passed in.
+   * @return a new List of Squares that are direct neighbors of the one passed
+   *         in.
    */
   protected final List<Square> getOneAwaySquares(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-    ret.addAll(getOneAwayOrthogonal(sq));
-    ret.addAll(getOneAwayDiagonal(sq));
-    return ret;
-  }
-
-  /**
-   * A list of Squares that are diagonal neighbors of the one passed in.
-   * 
-   * @param sq
-   *          The Square
-   * @return a List of Squares that are one away diagonally from this one and
-   *         can be occupied.
-   */
-  private List<Square> getOneAwayDiagonal(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    int file = sq.getFile();
-    int rank = sq.getRank();
-
-    checkAndAddSquare(ret, file - 1, rank - 1);
-    checkAndAddSquare(ret, file + 1, rank + 1);
-    checkAndAddSquare(ret, file - 1, rank + 1);
-    checkAndAddSquare(ret, file + 1, rank - 1);
-
-    return ret;
+    return new ArrayList<>(Arrays.asList(toSquares(this.geometry.getOneAway(indexOf(sq)))));
   }
 
   /**
@@ -194,7 +288,7 @@ public abstract class Board {
    * @return true if the Square is on the board and is not blocked.
    */
   protected boolean isPlayableSquare(final int file, final int rank) {
-    return isOnBoard(file, rank) && (!this.squares[rank][file].isBlocked());
+    return isOnBoard(file, rank) && !this.geometry.isBlocked(this.geometry.indexOf(file, rank));
   }
 
   /**
@@ -211,133 +305,67 @@ public abstract class Board {
   }
 
   /**
-   * A list of Squares that are orthogonal neighbors of the one passed in.
+   * A list of Squares that are two away neighbors of the one passed in,
+   * including knight jumps.
    * 
    * @param sq
    *          The Square
-   * @return a List of Squares that are one away orthogonally from this one and
-   *         can be occupied.
+   * @return a new List of Squares that are two away neighbors of the one passed
+   *         in.
    */
-  private List<Square> getOneAwayOrthogonal(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    int file = sq.getFile();
-    int rank = sq.getRank();
-
-    checkAndAddSquare(ret, file - 1, rank);
-    checkAndAddSquare(ret, file + 1, rank);
-    checkAndAddSquare(ret, file, rank - 1);
-    checkAndAddSquare(ret, file, rank + 1);
-
-    return ret;
+  protected final List<Square> getTwoAwaySquares(final Square sq) {
+    return new ArrayList<>(Arrays.asList(toSquares(this.geometry.getTwoAway(indexOf(sq)))));
   }
 
   /**
-   * Check that the Square at file and rank can be played to and add it to the
-   * Squares List if so.
+   * Pass the index of every playable Square one away from a Square to a
+   * consumer. Nothing is allocated, so a consumer that is created once and
+   * reused makes the loop allocation free.
    * 
-   * @param squareList
-   *          the List of Squares
-   * @param file
-   *          the File
-   * @param rank
-   *          the Rank
+   * @param index
+   *          the Square index
+   * @param action
+   *          the consumer
    */
-  private void checkAndAddSquare(final List<Square> squareList, final int file, final int rank) {
-    if (isPlayableSquare(file, rank)) {
-      squareList.add(this.squares[rank][file]);
-    }
+  public final void forEachOneAway(final int index, final IntConsumer action) {
+    this.geometry.forEachOneAway(index, action);
   }
 
   /**
-   * A list of Squares that are two away neighbors of the one passed in,
-   * including knight jumps.
+   * Pass the index of every playable Square two away from a Square, including
+   * knight jumps, to a consumer.
    * 
-   * @param sq
-   *          The Square
-   * @return a List of Squares that are two away neighbors of the one passed in.
+   * @param index
+   *          the Square index
+   * @param action
+   *          the consumer
    */
-  protected final List<Square> getTwoAwaySquares(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    ret.addAll(getTwoAwayOrthogonal(sq));
-    ret.addAll(getTwoAwayDiagonal(sq));
-    ret.addAll(getTwoAwayKnightJump(sq));
-
-    return ret;
+  public final void forEachTwoAway(final int index, final IntConsumer action) {
+    this.geometry.forEachTwoAway(index, action);
   }
 
   /**
-   * A list of Squares that are knight jump neighbors of the one passed in.
+   * Pass the index of every playable Square a knight jump away from a Square
+   * to a consumer.
    * 
-   * @param sq
-   *          The Square
-   * @return a List of Squares that are knight jumps from this one and can be
-   *         occupied.
+   * @param index
+   *          the Square index
+   * @param action
+   *          the consumer
    */
-  private List<Square> getTwoAwayKnightJump(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    int file = sq.getFile();
-    int rank = sq.getRank();
-
-    checkAndAddSquare(ret, file - 1, rank - 2);
-    checkAndAddSquare(ret, file - 1, rank + 2);
-    checkAndAddSquare(ret, file + 1, rank - 2);
-    checkAndAddSquare(ret, file + 1, rank + 2);
-
-    checkAndAddSquare(ret, file - 2, rank - 1);
-    checkAndAddSquare(ret, file - 2, rank + 1);
-    checkAndAddSquare(ret, file + 2, rank - 1);
-    checkAndAddSquare(ret, file + 2, rank + 1);
-
-    return ret;
+  public final void forEachKnightJump(final int index, final IntConsumer action) {
+    this.geometry.forEachKnightJump(index, action);
   }
 
   /**
-   * A list of Squares that are two away diagonal neighbors of the one passed
-   * in.
+   * Get the Square index of a Square on this Board.
    * 
    * @param sq
-   *          The Square
-   * @return a List of Squares that are two away diagonally from this one and
-   *         can be occupied.
+   *          the Square
+   * @return the Square index.
    */
-  private List<Square> getTwoAwayDiagonal(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    int file = sq.getFile();
-    int rank = sq.getRank();
-
-    checkAndAddSquare(ret, file - 2, rank - 2);
-    checkAndAddSquare(ret, file + 2, rank + 2);
-    checkAndAddSquare(ret, file - 2, rank + 2);
-    checkAndAddSquare(ret, file + 2, rank - 2);
-
-    return ret;
-  }
-
-  /**
-   * A list of Squares that are two away orthogonal neighbors of the one passed
-   * in.
-   * 
-   * @param sq
-   *          The Square
-   * @return a List of Squares that are two away orthogonally from this one and
-   *         can be occupied.
-   */
-  private List<Square> getTwoAwayOrthogonal(final Square sq) {
-    List<Square> ret = new ArrayList<>();
-
-    int file = sq.getFile();
-    int rank = sq.getRank();
-
-    checkAndAddSquare(ret, file - 2, rank);
-    checkAndAddSquare(ret, file + 2, rank);
-    checkAndAddSquare(ret, file, rank - 2);
-    checkAndAddSquare(ret, file, rank + 2);
-
-    return ret;
+  final int indexOf(final Square sq) {
+    return this.geometry.indexOf(sq.getFile(), sq.getRank());
   }
 
   @Override
@@ -385,7 +413,41 @@ public abstract class Board {
     Square sq = getSquareAt(file, rank);
     if (!sq.isBlocked()) {
       sq.setBlocked();
-      this.numBlockedSquares++;
+      this.geometry = this.geometry.withBlocked(this.geometry.indexOf(file, rank));
+      this.bitBoard = newBitBoard();
+      clearNeighbors();
+    }
+  }
+
+  /**
+   * Set some squares as blocked. The geometry is changed once for all of them,
+   * so prefer this to blocking one square at a time.
+   * 
+   * @param coords
+   *          Coordinates of the Squares
+   */
+  public void setBlocked(final List<Coordinate> coords) {
+    BitSet more = new BitSet();
+    for (Coordinate c : coords) {
+      Square sq = getSquareAt(c.getX(), c.getY());
+      if (!sq.isBlocked()) {
+        sq.setBlocked();
+        more.set(this.geometry.indexOf(c.getX(), c.getY()));
+      }
+    }
+    this.geometry = this.geometry.withBlocked(more);
+    this.bitBoard = newBitBoard();
+    clearNeighbors();
+  }
+
+  /**
+   * Forget the neighbor Squares of every Square after the geometry changed.
+   */
+  private void clearNeighbors() {
+    for (Square[] rankSquares : this.squares) {
+      for (Square sq : rankSquares) {
+        sq.clearNeighbors();
+      }
     }
   }
 
@@ -395,7 +457,7 @@ public abstract class Board {
    * @return the number of blocked squares.
    */
   public int getNumBlockedSquares() {
-    return this.numBlockedSquares;
+    return this.geometry.getNumBlockedSquares();
   }
 
   /**
@@ -404,29 +466,29 @@ public abstract class Board {
    * @return the Number of Playable Squares.
    */
   public int getNumPlayableSquares() {
-    return (getNumRanks() * getNumFiles()) - getNumBlockedSquares();
+    return this.geometry.getNumPlayableSquares();
   }
 
   /**
-   * Initialize the Direction Map in the Square.
+   * Initialize the Direction Map in the Square. Direction neighbors are now
+   * looked up in the shared geometry, so there is nothing to set up.
    * 
    * @param rank
    *          the Rank
    * @param file
    *          the File
+   * @deprecated {@link Square#getSquareInDirection(Direction)} no longer needs
+   *             this.
    */
+  @Deprecated
   protected void initSquareDirectionMap(final int rank, final int file) {
-    Square sq = this.squares[rank][file];
-    for (Direction direction : Direction.values()) {
-
-      if (isPlayableSquare(file + direction.getRun(), rank + direction.getRise())) {
-        sq.setSquareInDirection(direction, this.squares[rank + direction.getRise()][file + direction.getRun()]);
-      }
-    }
+    // Nothing to do.
   }
 
   /**
    * Make a copy in this Board Object of the Squares in another Board Object.
+   * Shared Pieces are reused, so copying a Board of shared Pieces allocates
+   * nothing.
    * 
    * @param b
    *          the Board to Copy.
@@ -442,6 +504,96 @@ public abstract class Board {
     }
   }
 
+  /**
+   * Estimate the average number of bytes each Square of this Board uses,
+   * including its neighbor arrays and any unshared Piece. The estimate assumes
+   * a 64 bit JVM with compressed references.
+   * 
+   * @return the estimated bytes per Square.
+   */
+  public final long estimateFootprintPerSquare() {
+    long bytes = 0;
+    for (Square[] rank : this.squares) {
+      for (Square sq : rank) {
+        bytes += sq.estimateFootprint();
+      }
+    }
+    return bytes / this.geometry.getNumSquares();
+  }
+
+  /**
+   * Get the number of longs {@link #snapshotInto(long[], int)} writes.
+   * 
+   * @return the snapshot size.
+   */
+  public final int getSnapshotSize() {
+    return SNAPSHOT_HEADER + (this.geometry.getNumSquares() + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD;
+  }
+
+  /**
+   * Write the Pieces, counts and hash key of this Board into a buffer. The
+   * layout is the hash key, then the Black count in the low and the White count
+   * in the high half of a word, then two bits per Square.
+   * 
+   * @param buf
+   *          the buffer
+   * @param offset
+   *          where to start writing
+   */
+  public final void snapshotInto(final long[] buf, final int offset) {
+    buf[offset] = this.hashKey;
+    buf[offset + 1] = (this.blackCount & 0xFFFFFFFFL) | ((long) this.whiteCount << 32);
+    int word = offset + SNAPSHOT_HEADER;
+    long bits = 0;
+    int index = 0;
+    for (int rank = 0; rank < this.numRanks; rank++) {
+      for (Square sq : this.squares[rank]) {
+        Piece p = sq.getPiece();
+        if (p != null) {
+          bits |= (long) (p.getColor().ordinal() + 1) << ((index & (SQUARES_PER_WORD - 1)) << 1);
+        }
+        index++;
+        if ((index & (SQUARES_PER_WORD - 1)) == 0) {
+          buf[word++] = bits;
+          bits = 0;
+        }
+      }
+    }
+    if ((index & (SQUARES_PER_WORD - 1)) != 0) {
+      buf[word] = bits;
+    }
+  }
+
+  /**
+   * Restore the Pieces, counts and hash key of this Board from a buffer written
+   * by {@link #snapshotInto(long[], int)} of a Board with the same geometry.
+   * On a Board of shared Pieces nothing is allocated. On a Board that has held
+   * mutable Pieces the Squares keep mutable Pieces, so they can still be
+   * flipped with {@link Piece#flip()}.
+   * 
+   * @param buf
+   *          the buffer
+   * @param offset
+   *          where to start reading
+   */
+  public final void restoreFrom(final long[] buf, final int offset) {
+    int word = offset + SNAPSHOT_HEADER;
+    long bits = buf[word];
+    int index = 0;
+    for (int rank = 0; rank < this.numRanks; rank++) {
+      for (Square sq : this.squares[rank]) {
+        int code = (int) (bits >>> ((index & (SQUARES_PER_WORD - 1)) << 1)) & 3;
+        sq.restoreColor(code == 0 ? null : COLORS[code - 1]);
+        index++;
+        if ((index & (SQUARES_PER_WORD - 1)) == 0 && index < this.geometry.getNumSquares()) {
+          bits = buf[++word];
+        }
+      }
+    }
+    restoreState(buf[offset], (int) buf[offset + 1], (int) (buf[offset + 1] >>> 32));
+    assert isConsistent() : "Restored counts or hash key do not match the Squares";
+  }
+
   /**
    * Doesn't work. Need to reverse the indices.
    * 
@@ -459,22 +611,231 @@ public abstract class Board {
    * @return PieceCount object with count values.
    */
   final PieceCount getPieceCount() {
-    int numBlack = 0;
-    int numWhite = 0;
-
-    for (int rank = 0; rank < getNumRanks(); rank++) {
-      for (int file = 0; file < getNumFiles(); file++) {
-        Piece piece = this.squares[rank][file].getPiece();
-        if (piece != null) {
-          if (piece.getColor() == PieceColor.BLACK) {
-            numBlack++;
-          } else {
-            numWhite++;
-          }
+    return new PieceCount(this.blackCount, this.whiteCount);
+  }
+
+  /**
+   * Get the number of Black Pieces on the board.
+   * 
+   * @return the Black count.
+   */
+  public final int getBlackCount() {
+    return this.blackCount;
+  }
+
+  /**
+   * Get the number of White Pieces on the board.
+   * 
+   * @return the White count.
+   */
+  public final int getWhiteCount() {
+    return this.whiteCount;
+  }
+
+  /**
+   * Get the number of playable Squares without a Piece.
+   * 
+   * @return the empty count.
+   */
+  public final int getEmptyCount() {
+    return getNumPlayableSquares() - this.blackCount - this.whiteCount;
+  }
+
+  /**
+   * Get the Zobrist key of the Pieces on the board. The side to move is not
+   * part of this key, see {@link Game#getHashKey()}.
+   * 
+   * @return the key.
+   */
+  public final long getHashKey() {
+    return this.hashKey;
+  }
+
+  /**
+   * Get the smallest Zobrist key of the Pieces on this Board over all the
+   * Symmetries of its geometry, along with the Symmetry that gives it.
+   * 
+   * @return the canonical key.
+   */
+  public final CanonicalKey canonicalKey() {
+    Symmetry[] symmetries = this.geometry.getSymmetries();
+    long bestKey = 0;
+    Symmetry best = Symmetry.IDENTITY;
+    for (int t = 0; t < symmetries.length; t++) {
+      long key = t == 0 ? this.hashKey : transformedKey(symmetries[t]);
+      if (t == 0 || key < bestKey) {
+        bestKey = key;
+        best = symmetries[t];
+      }
+    }
+    return new CanonicalKey(bestKey, best);
+  }
+
+  /**
+   * Get the Zobrist key the Pieces on this Board would have after a Symmetry.
+   * 
+   * @param symmetry
+   *          the Symmetry, which the geometry must have
+   * @return the key.
+   */
+  public final long transformedKey(final Symmetry symmetry) {
+    int[] map = this.geometry.getTransform(symmetry);
+    long key = 0;
+    int index = 0;
+    for (int rank = 0; rank < this.numRanks; rank++) {
+      for (Square sq : this.squares[rank]) {
+        Piece p = sq.getPiece();
+        if (p != null) {
+          key ^= this.geometry.getZobristKey(map[index], p.getColor());
         }
+        index++;
+      }
+    }
+    return key;
+  }
 
+  /**
+   * Set the hash key and Piece counts directly, after the Squares have been
+   * put back without going through the counting hooks.
+   * 
+   * @param key
+   *          the hash key
+   * @param black
+   *          the Black count
+   * @param white
+   *          the White count
+   */
+  final void restoreState(final long key, final int black, final int white) {
+    this.hashKey = key;
+    this.blackCount = black;
+    this.whiteCount = white;
+  }
+
+  /**
+   * Check that the counts and hash key match the Pieces in the Squares, that
+   * every mutable Piece knows its Square and that the BitBoard holds the same
+   * Pieces. Walks the whole board, so it is meant for assertions.
+   * 
+   * @return true if the Board is consistent.
+   */
+  final boolean isConsistent() {
+    int black = 0;
+    int white = 0;
+    long key = 0;
+    for (int rank = 0; rank < this.numRanks; rank++) {
+      for (Square sq : this.squares[rank]) {
+        Piece p = sq.getPiece();
+        if (p == null) {
+          continue;
+        }
+        if (!p.isShared() && p.getSquare() != sq) {
+          return false;
+        }
+        if (this.bitBoard != null && !sq.isBlocked() && this.bitBoard.getColorAt(indexOf(sq)) != p.getColor()) {
+          return false;
+        }
+        if (p.getColor() == PieceColor.BLACK) {
+          black++;
+        } else {
+          white++;
+        }
+        key ^= this.geometry.getZobristKey(indexOf(sq), p.getColor());
       }
     }
-    return new PieceCount(numBlack, numWhite);
+    if (this.bitBoard != null && (this.bitBoard.getBlackCount() != black || this.bitBoard.getWhiteCount() != white)) {
+      return false;
+    }
+    return black == this.blackCount && white == this.whiteCount && key == this.hashKey;
+  }
+
+  /**
+   * Note that a mutable Piece has been put on the board.
+   */
+  final void mutablePieceAdded() {
+    this.mutablePieces = true;
+  }
+
+  /**
+   * Check if a mutable Piece has ever been put on the board.
+   * 
+   * @return true if restored Squares should get mutable Pieces.
+   */
+  final boolean hasMutablePieces() {
+    return this.mutablePieces;
+  }
+
+  /**
+   * Count and hash a Piece put on the board.
+   * 
+   * @param sq
+   *          the Square the Piece was put in
+   * @param color
+   *          color of the Piece
+   */
+  final void pieceAdded(final Square sq, final PieceColor color) {
+    if (color == PieceColor.BLACK) {
+      this.blackCount++;
+    } else {
+      this.whiteCount++;
+    }
+    int index = indexOf(sq);
+    this.hashKey ^= this.geometry.getZobristKey(index, color);
+    if (this.bitBoard != null && !sq.isBlocked()) {
+      this.bitBoard.setPiece(index, color);
+    }
+  }
+
+  /**
+   * Count and hash a Piece taken off the board.
+   * 
+   * @param sq
+   *          the Square the Piece was taken from
+   * @param color
+   *          color of the Piece
+   */
+  final void pieceRemoved(final Square sq, final PieceColor color) {
+    if (color == PieceColor.BLACK) {
+      this.blackCount--;
+    } else {
+      this.whiteCount--;
+    }
+    int index = indexOf(sq);
+    this.hashKey ^= this.geometry.getZobristKey(index, color);
+    if (this.bitBoard != null) {
+      this.bitBoard.clearSquare(index);
+    }
+  }
+
+  /**
+   * Bring the BitBoard up to date with a Square whose Piece was put back
+   * without going through the counting hooks.
+   * 
+   * @param sq
+   *          the Square
+   * @param color
+   *          color of the Piece now there, or null if it is empty
+   */
+  final void pieceRestored(final Square sq, final PieceColor color) {
+    if (this.bitBoard == null || sq.isBlocked()) {
+      return;
+    }
+    if (color == null) {
+      this.bitBoard.clearSquare(indexOf(sq));
+    } else {
+      this.bitBoard.setPiece(indexOf(sq), color);
+    }
+  }
+
+  /**
+   * Count and hash a Piece on the board changing color.
+   * 
+   * @param sq
+   *          the Square the Piece is in
+   * @param newColor
+   *          the color the Piece changed to
+   */
+  final void pieceFlipped(final Square sq, final PieceColor newColor) {
+    pieceRemoved(sq, newColor.getOpposite());
+    pieceAdded(sq, newColor);
   }
 }
@@ -0,0 +1,917 @@
+package com.spamalot.boardgame;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable topology of a board: its size, which Squares are blocked and the
+ * neighbors of every Square.
+ *
+ * <p>
+ * A BoardGeometry is built once per (files, ranks, blocked layout) and shared
+ * through a registry by every board of that shape, including all the copies
+ * made during a search. The registry holds a bounded number of layouts.
+ * Squares are identified by their index
+ * {@code rank * numFiles + file}. Instances are thread-safe; arrays returned
+ * from the getters are shared and must not be modified.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class BoardGeometry {
+
+  /** File and rank offsets of the one away ring. */
+  private static final int[][] ONE_AWAY_OFFSETS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 }, { -1, -1 }, { 1, 1 },
+      { -1, 1 }, { 1, -1 } };
+
+  /** File and rank offsets of the two away ring, including knight jumps. */
+  private static final int[][] TWO_AWAY_OFFSETS = { { -2, 0 }, { 2, 0 }, { 0, -2 }, { 0, 2 }, { -2, -2 }, { 2, 2 },
+      { -2, 2 }, { 2, -2 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { -2, -1 }, { -2, 1 }, { 2, -1 }, { 2, 1 } };
+
+  /** File and rank offsets of the knight jumps. */
+  private static final int[][] KNIGHT_OFFSETS = { { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { -2, -1 }, { -2, 1 },
+      { 2, -1 }, { 2, 1 } };
+
+  /** Number of bits in a bitboard word. */
+  private static final int WORD_SIZE = 64;
+
+  /** Width of the sentinel border of a mailbox. */
+  private static final int BORDER = MailboxBoard.BORDER;
+
+  /** Number of Directions. */
+  private static final int NUM_DIRECTIONS = Direction.values().length;
+
+  /**
+   * Most geometries kept in the registry. Layouts asked for after it is full
+   * are built for the caller and not shared.
+   */
+  private static final int MAX_REGISTERED = 256;
+
+  /** The geometries built so far, up to {@link #MAX_REGISTERED}. */
+  private static final ConcurrentMap<Key, BoardGeometry> REGISTRY = new ConcurrentHashMap<>();
+
+  /** The registry key of this geometry. */
+  private final Key key;
+
+  /** The number of ranks on this board. */
+  private final int numRanks;
+
+  /** The number of files on this board. */
+  private final int numFiles;
+
+  /** The number of blocked Squares. */
+  private final int numBlockedSquares;
+
+  /** Whether each Square is blocked. */
+  private final boolean[] blocked;
+
+  /** Indices of the playable Squares one away from each Square. */
+  private final int[][] oneAway;
+
+  /** Indices of the playable Squares two away from each Square. */
+  private final int[][] twoAway;
+
+  /** Indices of the playable Squares a knight jump away from each Square. */
+  private final int[][] knightJumps;
+
+  /**
+   * Index of the playable Square in each Direction from each Square, by
+   * {@code sq * NUM_DIRECTIONS + direction.ordinal()}, or -1 if there is none.
+   */
+  private final int[] directionNeighbors;
+
+  /** Low word of the mask of all playable Squares, if a bitboard fits. */
+  private final long playableLo;
+
+  /** High word of the mask of all playable Squares, if a bitboard fits. */
+  private final long playableHi;
+
+  /** Low words of the one away masks per Square, if a bitboard fits. */
+  private final long[] oneAwayLo;
+
+  /** High words of the one away masks per Square, if a bitboard fits. */
+  private final long[] oneAwayHi;
+
+  /** Low words of the two away masks per Square, if a bitboard fits. */
+  private final long[] twoAwayLo;
+
+  /** High words of the two away masks per Square, if a bitboard fits. */
+  private final long[] twoAwayHi;
+
+  /** Distance between the same file on adjacent ranks of a mailbox. */
+  private final int mailboxStride;
+
+  /** Mailbox with the border and blocked Squares filled in. */
+  private final byte[] mailboxTemplate;
+
+  /** Mailbox index deltas of the one away ring. */
+  private final int[] mailboxOneAwayDeltas;
+
+  /** Mailbox index deltas of the two away ring. */
+  private final int[] mailboxTwoAwayDeltas;
+
+  /** Mailbox index deltas of the Directions, by ordinal. */
+  private final int[] mailboxDirectionDeltas;
+
+  /** The Coordinate of each Square. */
+  private final Coordinate[] coordinates;
+
+  /** Zobrist keys of every (Square, color) pair. */
+  private final long[] zobristKeys;
+
+  /**
+   * Where each Square goes under each Symmetry, by Symmetry ordinal. Null for
+   * the Symmetries this board does not have.
+   */
+  private final int[][] transforms;
+
+  /** The Symmetries this board has. */
+  private final Symmetry[] symmetries;
+
+  /**
+   * Get the shared geometry of a board with no blocked Squares.
+   *
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   * @return the geometry.
+   */
+  public static BoardGeometry of(final int files, final int ranks) {
+    return of(files, ranks, new BitSet());
+  }
+
+  /**
+   * Get the shared geometry of a board.
+   *
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   * @param blockedSquares
+   *          indices of the blocked Squares
+   * @return the geometry.
+   */
+  public static BoardGeometry of(final int files, final int ranks, final BitSet blockedSquares) {
+    if (files < 1 || ranks < 1) {
+      throw new IllegalArgumentException("Illegal board size " + files + "x" + ranks);
+    }
+    if (blockedSquares.length() > files * ranks) {
+      throw new IllegalArgumentException("Blocked Square off the board");
+    }
+    Key k = new Key(files, ranks, (BitSet) blockedSquares.clone());
+    BoardGeometry geometry = REGISTRY.get(k);
+    if (geometry == null) {
+      if (REGISTRY.size() >= MAX_REGISTERED) {
+        return new BoardGeometry(k);
+      }
+      geometry = REGISTRY.computeIfAbsent(k, BoardGeometry::new);
+    }
+    return geometry;
+  }
+
+  /**
+   * Build a geometry. Use {@link #of(int, int, BitSet)} instead.
+   *
+   * @param k
+   *          the registry key
+   */
+  private BoardGeometry(final Key k) {
+    this.key = k;
+    this.numFiles = k.files;
+    this.numRanks = k.ranks;
+
+    int numSquares = this.numFiles * this.numRanks;
+    this.blocked = new boolean[numSquares];
+    for (int sq = k.blockedSquares.nextSetBit(0); sq >= 0; sq = k.blockedSquares.nextSetBit(sq + 1)) {
+      this.blocked[sq] = true;
+    }
+    this.numBlockedSquares = k.blockedSquares.cardinality();
+
+    this.oneAway = new int[numSquares][];
+    this.twoAway = new int[numSquares][];
+    this.knightJumps = new int[numSquares][];
+    this.directionNeighbors = new int[numSquares * NUM_DIRECTIONS];
+    for (int sq = 0; sq < numSquares; sq++) {
+      this.oneAway[sq] = neighbors(sq, ONE_AWAY_OFFSETS);
+      this.twoAway[sq] = neighbors(sq, TWO_AWAY_OFFSETS);
+      this.knightJumps[sq] = neighbors(sq, KNIGHT_OFFSETS);
+      for (Direction direction : Direction.values()) {
+        this.directionNeighbors[sq * NUM_DIRECTIONS + direction.ordinal()] = neighbor(sq, direction.getRun(),
+            direction.getRise());
+      }
+    }
+
+    if (numSquares <= BitBoard.MAX_SQUARES) {
+      long lo = 0;
+      long hi = 0;
+      for (int sq = 0; sq < numSquares; sq++) {
+        if (!this.blocked[sq]) {
+          if (sq < WORD_SIZE) {
+            lo |= 1L << sq;
+          } else {
+            hi |= 1L << (sq - WORD_SIZE);
+          }
+        }
+      }
+      this.playableLo = lo;
+      this.playableHi = hi;
+      this.oneAwayLo = new long[numSquares];
+      this.oneAwayHi = new long[numSquares];
+      this.twoAwayLo = new long[numSquares];
+      this.twoAwayHi = new long[numSquares];
+      for (int sq = 0; sq < numSquares; sq++) {
+        fillMask(this.oneAway[sq], sq, this.oneAwayLo, this.oneAwayHi);
+        fillMask(this.twoAway[sq], sq, this.twoAwayLo, this.twoAwayHi);
+      }
+    } else {
+      this.playableLo = 0;
+      this.playableHi = 0;
+      this.oneAwayLo = null;
+      this.oneAwayHi = null;
+      this.twoAwayLo = null;
+      this.twoAwayHi = null;
+    }
+
+    this.mailboxStride = this.numFiles + 2 * BORDER;
+    this.mailboxTemplate = new byte[this.mailboxStride * (this.numRanks + 2 * BORDER)];
+    Arrays.fill(this.mailboxTemplate, MailboxBoard.BLOCKED);
+    for (int sq = 0; sq < numSquares; sq++) {
+      if (!this.blocked[sq]) {
+        this.mailboxTemplate[toMailboxIndex(sq)] = MailboxBoard.EMPTY;
+      }
+    }
+    this.mailboxOneAwayDeltas = toMailboxDeltas(ONE_AWAY_OFFSETS);
+    this.mailboxTwoAwayDeltas = toMailboxDeltas(TWO_AWAY_OFFSETS);
+    this.mailboxDirectionDeltas = new int[NUM_DIRECTIONS];
+    for (Direction direction : Direction.values()) {
+      this.mailboxDirectionDeltas[direction.ordinal()] = direction.getRise() * this.mailboxStride + direction.getRun();
+    }
+
+    this.coordinates = new Coordinate[numSquares];
+    for (int sq = 0; sq < numSquares; sq++) {
+      this.coordinates[sq] = Coordinate.of(getFile(sq), getRank(sq));
+    }
+
+    this.zobristKeys = Zobrist.newSquareKeys(numSquares);
+
+    Symmetry[] all = Symmetry.values();
+    this.transforms = new int[all.length][];
+    int numSymmetries = 0;
+    for (Symmetry symmetry : all) {
+      this.transforms[symmetry.ordinal()] = buildTransform(symmetry);
+      if (this.transforms[symmetry.ordinal()] != null) {
+        numSymmetries++;
+      }
+    }
+    this.symmetries = new Symmetry[numSymmetries];
+    numSymmetries = 0;
+    for (Symmetry symmetry : all) {
+      if (this.transforms[symmetry.ordinal()] != null) {
+        this.symmetries[numSymmetries++] = symmetry;
+      }
+    }
+  }
+
+  /**
+   * Build the Square mapping of a Symmetry.
+   *
+   * @param symmetry
+   *          the Symmetry
+   * @return where each Square goes, or null if the board shape or its blocked
+   *         Squares are not preserved.
+   */
+  private int[] buildTransform(final Symmetry symmetry) {
+    if (symmetry.swapsAxes() && this.numFiles != this.numRanks) {
+      return null;
+    }
+    int[] map = new int[getNumSquares()];
+    for (int sq = 0; sq < map.length; sq++) {
+      int file = getFile(sq);
+      int rank = getRank(sq);
+      map[sq] = indexOf(symmetry.mapFile(file, rank, this.numFiles, this.numRanks),
+          symmetry.mapRank(file, rank, this.numFiles, this.numRanks));
+      if (this.blocked[sq] != this.blocked[map[sq]]) {
+        return null;
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Get the index of the playable Square at an offset from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param fileOffset
+   *          offset in files
+   * @param rankOffset
+   *          offset in ranks
+   * @return the index, or -1 if it is off the board or blocked.
+   */
+  private int neighbor(final int sq, final int fileOffset, final int rankOffset) {
+    int file = getFile(sq) + fileOffset;
+    int rank = getRank(sq) + rankOffset;
+    if (file < 0 || file >= this.numFiles || rank < 0 || rank >= this.numRanks) {
+      return -1;
+    }
+    int n = indexOf(file, rank);
+    return this.blocked[n] ? -1 : n;
+  }
+
+  /**
+   * Get the indices of the playable Squares at offsets from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param offsets
+   *          file and rank offsets
+   * @return the indices in offset order.
+   */
+  private int[] neighbors(final int sq, final int[][] offsets) {
+    int[] found = new int[offsets.length];
+    int count = 0;
+    for (int[] offset : offsets) {
+      int n = neighbor(sq, offset[0], offset[1]);
+      if (n >= 0) {
+        found[count++] = n;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Set the bits of some Squares in a two word mask.
+   *
+   * @param squares
+   *          the Square indices
+   * @param sq
+   *          index of the mask to fill
+   * @param lo
+   *          low words
+   * @param hi
+   *          high words
+   */
+  private static void fillMask(final int[] squares, final int sq, final long[] lo, final long[] hi) {
+    for (int n : squares) {
+      if (n < WORD_SIZE) {
+        lo[sq] |= 1L << n;
+      } else {
+        hi[sq] |= 1L << (n - WORD_SIZE);
+      }
+    }
+  }
+
+  /**
+   * Turn file and rank offsets into mailbox index deltas.
+   *
+   * @param offsets
+   *          file and rank offsets
+   * @return the index deltas.
+   */
+  private int[] toMailboxDeltas(final int[][] offsets) {
+    int[] deltas = new int[offsets.length];
+    for (int i = 0; i < offsets.length; i++) {
+      deltas[i] = offsets[i][1] * this.mailboxStride + offsets[i][0];
+    }
+    return deltas;
+  }
+
+  /**
+   * Get the geometry with one more Square blocked. Every call registers a
+   * layout, so use {@link #withBlocked(BitSet)} to block several Squares.
+   *
+   * @param sq
+   *          index of the Square to block
+   * @return the shared geometry.
+   */
+  public BoardGeometry withBlocked(final int sq) {
+    if (this.blocked[sq]) {
+      return this;
+    }
+    BitSet b = new BitSet();
+    b.set(sq);
+    return withBlocked(b);
+  }
+
+  /**
+   * Get the geometry with more Squares blocked. Only the final layout is built
+   * and registered.
+   *
+   * @param squares
+   *          indices of the Squares to block
+   * @return the shared geometry.
+   */
+  public BoardGeometry withBlocked(final BitSet squares) {
+    BitSet b = (BitSet) this.key.blockedSquares.clone();
+    b.or(squares);
+    if (b.equals(this.key.blockedSquares)) {
+      return this;
+    }
+    return of(this.numFiles, this.numRanks, b);
+  }
+
+  /**
+   * Get the number of ranks on this board.
+   *
+   * @return the number of ranks.
+   */
+  public int getNumRanks() {
+    return this.numRanks;
+  }
+
+  /**
+   * Get the number of files on this board.
+   *
+   * @return the number of files.
+   */
+  public int getNumFiles() {
+    return this.numFiles;
+  }
+
+  /**
+   * Get a value identifying the size and blocked Squares of this board. Boards
+   * of another size, or with other Squares blocked, get another value except
+   * in the rare case of a collision in the blocked Squares. The value is the
+   * same in every process.
+   *
+   * @return the files in the top 16 bits, the ranks in the next 16 bits and a
+   *         hash of the blocked Squares in the low 32 bits.
+   */
+  public long getFingerprint() {
+    return ((long) this.numFiles << 48) | ((long) (this.numRanks & 0xffff) << 32)
+        | (this.key.blockedSquares.hashCode() & 0xffffffffL);
+  }
+
+  /**
+   * Get the number of Squares on this board, including blocked ones.
+   *
+   * @return the number of Squares.
+   */
+  public int getNumSquares() {
+    return this.blocked.length;
+  }
+
+  /**
+   * Return the number of Squares not allowed to be moved to.
+   *
+   * @return the number of blocked squares.
+   */
+  public int getNumBlockedSquares() {
+    return this.numBlockedSquares;
+  }
+
+  /**
+   * Get the Number of playable Squares.
+   *
+   * @return the Number of Playable Squares.
+   */
+  public int getNumPlayableSquares() {
+    return getNumSquares() - this.numBlockedSquares;
+  }
+
+  /**
+   * Get the index of a Square.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @return the Square index.
+   */
+  public int indexOf(final int file, final int rank) {
+    return rank * this.numFiles + file;
+  }
+
+  /**
+   * Get the file of a Square index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the file.
+   */
+  public int getFile(final int sq) {
+    return sq % this.numFiles;
+  }
+
+  /**
+   * Get the rank of a Square index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the rank.
+   */
+  public int getRank(final int sq) {
+    return sq / this.numFiles;
+  }
+
+  /**
+   * Get the interned Coordinate of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the Coordinate.
+   */
+  public Coordinate getCoordinate(final int sq) {
+    return this.coordinates[sq];
+  }
+
+  /**
+   * Get the index of the Square at a Coordinate.
+   *
+   * @param c
+   *          the Coordinate
+   * @return the Square index.
+   */
+  public int indexOf(final Coordinate c) {
+    return indexOf(c.getX(), c.getY());
+  }
+
+  /**
+   * Check if file and rank is on the Board.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @return true if the square at file and rank is on the Board.
+   */
+  public boolean isOnBoard(final int file, final int rank) {
+    return file >= 0 && file < this.numFiles && rank >= 0 && rank < this.numRanks;
+  }
+
+  /**
+   * Check if a Square is blocked.
+   *
+   * @param sq
+   *          the Square index
+   * @return true if the Square is blocked.
+   */
+  public boolean isBlocked(final int sq) {
+    return this.blocked[sq];
+  }
+
+  /**
+   * Get the playable Squares one away from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the Square indices.
+   */
+  public int[] getOneAway(final int sq) {
+    return this.oneAway[sq];
+  }
+
+  /**
+   * Get the playable Squares two away from a Square, including knight jumps.
+   *
+   * @param sq
+   *          the Square index
+   * @return the Square indices.
+   */
+  public int[] getTwoAway(final int sq) {
+    return this.twoAway[sq];
+  }
+
+  /**
+   * Get the playable Squares a knight jump away from a Square. These are a
+   * subset of the two away Squares.
+   *
+   * @param sq
+   *          the Square index
+   * @return the Square indices.
+   */
+  public int[] getKnightJumps(final int sq) {
+    return this.knightJumps[sq];
+  }
+
+  /**
+   * Pass the index of every playable Square one away from a Square to a
+   * consumer.
+   *
+   * @param sq
+   *          the Square index
+   * @param action
+   *          the consumer
+   */
+  public void forEachOneAway(final int sq, final IntConsumer action) {
+    for (int n : this.oneAway[sq]) {
+      action.accept(n);
+    }
+  }
+
+  /**
+   * Pass the index of every playable Square two away from a Square, including
+   * knight jumps, to a consumer.
+   *
+   * @param sq
+   *          the Square index
+   * @param action
+   *          the consumer
+   */
+  public void forEachTwoAway(final int sq, final IntConsumer action) {
+    for (int n : this.twoAway[sq]) {
+      action.accept(n);
+    }
+  }
+
+  /**
+   * Pass the index of every playable Square a knight jump away from a Square to
+   * a consumer.
+   *
+   * @param sq
+   *          the Square index
+   * @param action
+   *          the consumer
+   */
+  public void forEachKnightJump(final int sq, final IntConsumer action) {
+    for (int n : this.knightJumps[sq]) {
+      action.accept(n);
+    }
+  }
+
+  /**
+   * Get the playable Square in a Direction from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param dir
+   *          the Direction
+   * @return the Square index, or -1 if there is none.
+   */
+  public int getNeighbor(final int sq, final Direction dir) {
+    return this.directionNeighbors[sq * NUM_DIRECTIONS + dir.ordinal()];
+  }
+
+  /**
+   * Check if a {@link BitBoard} can hold this geometry.
+   *
+   * @return true if the board has no more than {@value BitBoard#MAX_SQUARES}
+   *         Squares.
+   */
+  public boolean hasMasks() {
+    return this.oneAwayLo != null;
+  }
+
+  /**
+   * Get the low word of the mask of all playable Squares.
+   *
+   * @return the low word of the mask.
+   */
+  public long getPlayableLo() {
+    return this.playableLo;
+  }
+
+  /**
+   * Get the high word of the mask of all playable Squares.
+   *
+   * @return the high word of the mask.
+   */
+  public long getPlayableHi() {
+    return this.playableHi;
+  }
+
+  /**
+   * Get the low word of the one away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the low word of the mask.
+   */
+  public long getOneAwayLo(final int sq) {
+    return this.oneAwayLo[sq];
+  }
+
+  /**
+   * Get the high word of the one away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the high word of the mask.
+   */
+  public long getOneAwayHi(final int sq) {
+    return this.oneAwayHi[sq];
+  }
+
+  /**
+   * Get the low word of the two away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the low word of the mask.
+   */
+  public long getTwoAwayLo(final int sq) {
+    return this.twoAwayLo[sq];
+  }
+
+  /**
+   * Get the high word of the two away mask of a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the high word of the mask.
+   */
+  public long getTwoAwayHi(final int sq) {
+    return this.twoAwayHi[sq];
+  }
+
+  /**
+   * Get the distance between the same file on adjacent ranks of a mailbox.
+   *
+   * @return the stride.
+   */
+  public int getMailboxStride() {
+    return this.mailboxStride;
+  }
+
+  /**
+   * Get the mailbox index of a Square index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the mailbox index.
+   */
+  public int toMailboxIndex(final int sq) {
+    return (getRank(sq) + BORDER) * this.mailboxStride + getFile(sq) + BORDER;
+  }
+
+  /**
+   * Get the Square index of a mailbox index.
+   *
+   * @param mailboxIndex
+   *          the mailbox index
+   * @return the Square index.
+   */
+  public int fromMailboxIndex(final int mailboxIndex) {
+    return indexOf(mailboxIndex % this.mailboxStride - BORDER, mailboxIndex / this.mailboxStride - BORDER);
+  }
+
+  /**
+   * Get a new mailbox with the border and blocked Squares filled in.
+   *
+   * @return the mailbox.
+   */
+  public byte[] newMailbox() {
+    return this.mailboxTemplate.clone();
+  }
+
+  /**
+   * Get the mailbox index deltas of the one away ring.
+   *
+   * @return the deltas.
+   */
+  public int[] getMailboxOneAwayDeltas() {
+    return this.mailboxOneAwayDeltas;
+  }
+
+  /**
+   * Get the mailbox index deltas of the two away ring, including knight jumps.
+   *
+   * @return the deltas.
+   */
+  public int[] getMailboxTwoAwayDeltas() {
+    return this.mailboxTwoAwayDeltas;
+  }
+
+  /**
+   * Get the mailbox index delta of a Direction.
+   *
+   * @param dir
+   *          the Direction
+   * @return the delta.
+   */
+  public int getMailboxDelta(final Direction dir) {
+    return this.mailboxDirectionDeltas[dir.ordinal()];
+  }
+
+  /**
+   * Get the Symmetries of this board: those that keep its shape and its
+   * blocked Squares. The identity is always first.
+   *
+   * @return the Symmetries.
+   */
+  public Symmetry[] getSymmetries() {
+    return this.symmetries;
+  }
+
+  /**
+   * Check if this board has a Symmetry.
+   *
+   * @param symmetry
+   *          the Symmetry
+   * @return true if the Symmetry maps the board onto itself.
+   */
+  public boolean hasSymmetry(final Symmetry symmetry) {
+    return this.transforms[symmetry.ordinal()] != null;
+  }
+
+  /**
+   * Get where each Square goes under a Symmetry.
+   *
+   * @param symmetry
+   *          the Symmetry
+   * @return the new Square index of each Square index, or null if this board
+   *         does not have the Symmetry.
+   */
+  public int[] getTransform(final Symmetry symmetry) {
+    return this.transforms[symmetry.ordinal()];
+  }
+
+  /**
+   * Get where a Square goes under a Symmetry.
+   *
+   * @param sq
+   *          the Square index
+   * @param symmetry
+   *          the Symmetry, which this board must have
+   * @return the new Square index.
+   */
+  public int transform(final int sq, final Symmetry symmetry) {
+    return this.transforms[symmetry.ordinal()][sq];
+  }
+
+  /**
+   * Get the Zobrist key of a Piece of a color in a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color of the Piece
+   * @return the key.
+   */
+  public long getZobristKey(final int sq, final PieceColor color) {
+    return this.zobristKeys[sq * 2 + color.ordinal()];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("BoardGeometry [files=");
+    builder.append(this.numFiles);
+    builder.append(", ranks=");
+    builder.append(this.numRanks);
+    builder.append(", blocked=");
+    builder.append(this.key.blockedSquares);
+    builder.append("]");
+    return builder.toString();
+  }
+
+  /**
+   * Registry key of a geometry.
+   *
+   * @author gej
+   *
+   */
+  private static final class Key {
+    /** Width of the board. */
+    private final int files;
+
+    /** Height of the board. */
+    private final int ranks;
+
+    /** Indices of the blocked Squares. */
+    private final BitSet blockedSquares;
+
+    /**
+     * Construct a Key.
+     *
+     * @param f
+     *          width of the board
+     * @param r
+     *          height of the board
+     * @param b
+     *          indices of the blocked Squares, not shared with the caller
+     */
+    Key(final int f, final int r, final BitSet b) {
+      this.files = f;
+      this.ranks = r;
+      this.blockedSquares = b;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + this.files;
+      result = prime * result + this.ranks;
+      result = prime * result + this.blockedSquares.hashCode();
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.files == other.files && this.ranks == other.ranks && this.blockedSquares.equals(other.blockedSquares);
+    }
+  }
+}
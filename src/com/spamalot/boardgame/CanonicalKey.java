@@ -0,0 +1,61 @@
+package com.spamalot.boardgame;
+
+/**
+ * The smallest Zobrist key of a position over all the symmetries of its board,
+ * and the Symmetry that produces it. Positions that are rotations or
+ * reflections of each other have the same canonical key.
+ *
+ * @author gej
+ *
+ */
+public final class CanonicalKey {
+
+  /** The canonical key. */
+  private final long key;
+
+  /** The Symmetry that maps the position to its canonical form. */
+  private final Symmetry symmetry;
+
+  /**
+   * Construct a CanonicalKey.
+   *
+   * @param k
+   *          the key
+   * @param sym
+   *          the Symmetry that produces it
+   */
+  CanonicalKey(final long k, final Symmetry sym) {
+    this.key = k;
+    this.symmetry = sym;
+  }
+
+  /**
+   * Get the canonical key.
+   *
+   * @return the key.
+   */
+  public long getKey() {
+    return this.key;
+  }
+
+  /**
+   * Get the Symmetry that maps the position to its canonical form. Apply its
+   * inverse to map Squares of the canonical form back.
+   *
+   * @return the Symmetry.
+   */
+  public Symmetry getSymmetry() {
+    return this.symmetry;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("CanonicalKey [key=");
+    builder.append(Long.toHexString(this.key));
+    builder.append(", symmetry=");
+    builder.append(this.symmetry);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -7,6 +7,20 @@ package com.spamalot.boardgame;
  *
  */
 public final class Coordinate {
+  /** Coordinates below this in both ordinates are interned. */
+  private static final int CACHE_SIZE = 32;
+
+  /** The interned Coordinates, by {@code y * CACHE_SIZE + x}. */
+  private static final Coordinate[] CACHE = new Coordinate[CACHE_SIZE * CACHE_SIZE];
+
+  static {
+    for (int y = 0; y < CACHE_SIZE; y++) {
+      for (int x = 0; x < CACHE_SIZE; x++) {
+        CACHE[y * CACHE_SIZE + x] = new Coordinate(x, y);
+      }
+    }
+  }
+
   /** The X ordinate. */
   private final int x;
   /** The Y ordinate. */
@@ -25,6 +39,23 @@ public final class Coordinate {
     this.y = yOrd;
   }
 
+  /**
+   * Get a Coordinate. Coordinates that fit on any board up to 32x32 are
+   * interned, so no Object is created for them.
+   * 
+   * @param xOrd
+   *          the X ordinate
+   * @param yOrd
+   *          the Y ordinate
+   * @return the Coordinate.
+   */
+  public static Coordinate of(final int xOrd, final int yOrd) {
+    if (xOrd >= 0 && xOrd < CACHE_SIZE && yOrd >= 0 && yOrd < CACHE_SIZE) {
+      return CACHE[yOrd * CACHE_SIZE + xOrd];
+    }
+    return new Coordinate(xOrd, yOrd);
+  }
+
   /**
    * Get X.
    * 
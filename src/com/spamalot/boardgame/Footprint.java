@@ -0,0 +1,95 @@
+package com.spamalot.boardgame;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Estimate the heap footprint of objects. Sizes assume a 64 bit JVM with
+ * compressed references: 12 byte object headers, 16 byte array headers, 4 byte
+ * references and objects padded to 8 bytes.
+ *
+ * @author gej
+ *
+ */
+final class Footprint {
+
+  /** Size of an object header. */
+  private static final int OBJECT_HEADER = 12;
+
+  /** Size of an array header, including the length. */
+  private static final int ARRAY_HEADER = 16;
+
+  /** Size of a reference. */
+  private static final int REFERENCE = 4;
+
+  /** Object alignment. */
+  private static final int ALIGNMENT = 8;
+
+  /**
+   * Utility class.
+   */
+  private Footprint() {
+  }
+
+  /**
+   * Estimate the size of an object, not counting the objects it refers to.
+   *
+   * @param obj
+   *          the object, may be null
+   * @return the estimated size in bytes, 0 for null.
+   */
+  static long shallowSize(final Object obj) {
+    if (obj == null) {
+      return 0;
+    }
+    Class<?> cls = obj.getClass();
+    if (cls.isArray()) {
+      int length = Array.getLength(obj);
+      return align(ARRAY_HEADER + (long) length * sizeOf(cls.getComponentType()));
+    }
+    long size = OBJECT_HEADER;
+    for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          size += sizeOf(field.getType());
+        }
+      }
+    }
+    return align(size);
+  }
+
+  /**
+   * Get the size of a field or array element of a type.
+   *
+   * @param type
+   *          the type
+   * @return the size in bytes.
+   */
+  private static int sizeOf(final Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+    if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    return REFERENCE;
+  }
+
+  /**
+   * Round a size up to the object alignment.
+   *
+   * @param size
+   *          the size
+   * @return the aligned size.
+   */
+  private static long align(final long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+}
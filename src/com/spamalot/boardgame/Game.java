@@ -25,6 +25,12 @@ public abstract class Game {
   /** The board for this game. */
   private Board board;
 
+  /** Side to move part of the Zobrist key. */
+  private long sideKey = Zobrist.sideKey(PieceColor.WHITE);
+
+  /** Frames to take back moves made with {@link #beginUndoFrame(int, int)}. */
+  private final UndoStack undoStack = new UndoStack(64, 256);
+
   /**
    * Constructor.
    */
@@ -49,13 +55,25 @@ public abstract class Game {
    */
   public void setColorToMove(final PieceColor toMove) {
     this.colorToMove = toMove;
+    this.sideKey = Zobrist.sideKey(toMove);
   }
 
   /**
    * Switch color to move to the opposite color.
    */
   protected void switchColorToMove() {
-    setColorToMove(getColorToMove().getOpposite());
+    this.colorToMove = this.colorToMove.getOpposite();
+    this.sideKey ^= Zobrist.BLACK_TO_MOVE;
+  }
+
+  /**
+   * Get the Zobrist key of the position: the Pieces on the board and the side
+   * to move.
+   * 
+   * @return the key.
+   */
+  public long getHashKey() {
+    return this.board.getHashKey() ^ this.sideKey;
   }
 
   /**
@@ -66,6 +84,57 @@ public abstract class Game {
    */
   protected abstract void initGame() throws GameException;
 
+  /**
+   * Get the smallest Zobrist key of the position over all the Symmetries of
+   * the board, along with the Symmetry that gives it. The side to move is
+   * included, so it matches {@link #getHashKey()} under the identity.
+   * 
+   * @return the canonical key.
+   */
+  public CanonicalKey canonicalKey() {
+    CanonicalKey boardKey = this.board.canonicalKey();
+    return new CanonicalKey(boardKey.getKey() ^ this.sideKey, boardKey.getSymmetry());
+  }
+
+  /**
+   * Get the number of longs {@link #snapshotInto(long[], int)} writes.
+   * 
+   * @return the snapshot size.
+   */
+  public final int getSnapshotSize() {
+    return 1 + this.board.getSnapshotSize();
+  }
+
+  /**
+   * Write the position of this Game, meaning the side to move and the Board
+   * with its counts and hash key, into a buffer. The undo history is not
+   * included. A buffer can be reused for any number of snapshots, so parallel
+   * searchers and self play can clone positions without allocating.
+   * 
+   * @param buf
+   *          the buffer, at least {@link #getSnapshotSize()} long from offset
+   * @param offset
+   *          where to start writing
+   */
+  public final void snapshotInto(final long[] buf, final int offset) {
+    buf[offset] = this.colorToMove.ordinal();
+    this.board.snapshotInto(buf, offset + 1);
+  }
+
+  /**
+   * Restore a position written by {@link #snapshotInto(long[], int)} of a Game
+   * on the same geometry.
+   * 
+   * @param buf
+   *          the buffer
+   * @param offset
+   *          where to start reading
+   */
+  public final void restoreFrom(final long[] buf, final int offset) {
+    setColorToMove(buf[offset] == PieceColor.BLACK.ordinal() ? PieceColor.BLACK : PieceColor.WHITE);
+    this.board.restoreFrom(buf, offset + 1);
+  }
+
   /**
    * Make a defensive copy of this object.
    * 
@@ -84,6 +153,33 @@ public abstract class Game {
     return this.board.getPieceCount();
   }
 
+  /**
+   * Get the number of Black Pieces on the board without allocating.
+   * 
+   * @return the Black count.
+   */
+  public final int getBlackCount() {
+    return this.board.getBlackCount();
+  }
+
+  /**
+   * Get the number of White Pieces on the board without allocating.
+   * 
+   * @return the White count.
+   */
+  public final int getWhiteCount() {
+    return this.board.getWhiteCount();
+  }
+
+  /**
+   * Get the number of empty playable Squares on the board.
+   * 
+   * @return the empty count.
+   */
+  public final int getEmptyCount() {
+    return this.board.getEmptyCount();
+  }
+
   /**
    * Return the number of files on the board.
    * 
@@ -139,6 +235,22 @@ public abstract class Game {
     return null;
   }
 
+  /**
+   * Get the square at a Square index.
+   * 
+   * @param index
+   *          the Square index, {@code rank * numFiles + file}
+   * @return the square, or null if the index is off the board.
+   */
+  public Square getSquareAt(final int index) {
+    Board board2 = getBoard();
+
+    if (index >= 0 && index < board2.getGeometry().getNumSquares()) {
+      return board2.getSquareAt(index);
+    }
+    return null;
+  }
+
   /**
    * A generic check to see if the Game is over. If no pieces of one color exist
    * or if the Board is full then the Game is considered to be over. This method
@@ -147,11 +259,7 @@ public abstract class Game {
    * @return true if the Game is over.
    */
   public boolean isOver() {
-    PieceCount p = getPieceCount();
-
-    int playableSquares = getBoard().getNumPlayableSquares();
-
-    return ((p.getBlackCount() + p.getWhiteCount() == playableSquares) || p.getBlackCount() == 0 || p.getWhiteCount() == 0);
+    return getEmptyCount() == 0 || getBlackCount() == 0 || getWhiteCount() == 0;
   }
 
   /**
@@ -188,17 +296,85 @@ public abstract class Game {
   }
 
   /**
-   * Flip some Pieces to their opposite color.
+   * Flip some Pieces to their opposite color. Each Piece on the board is
+   * flipped through its Square. Shared Pieces do not know their Square, so a
+   * shared Piece in the list throws UnsupportedOperationException.
    * 
    * @param piecesToFlip
    *          the Pieces to Flip
+   * @deprecated Pieces may be shared, use {@link #flipSquares(List)}.
    */
+  @Deprecated
   protected static void flipPieces(final List<Piece> piecesToFlip) {
     for (Piece piece : piecesToFlip) {
-      piece.flip();
+      Square sq = piece.getSquare();
+      if (sq != null) {
+        sq.flip();
+      } else {
+        piece.flip();
+      }
+    }
+  }
+
+  /**
+   * Flip the Pieces in some Squares to their opposite color. Works for shared
+   * Pieces without allocating.
+   * 
+   * @param squaresToFlip
+   *          the Squares to Flip
+   */
+  protected static void flipSquares(final List<Square> squaresToFlip) {
+    for (Square sq : squaresToFlip) {
+      sq.flip();
     }
   }
 
+  /**
+   * Start recording a move so it can be taken back with
+   * {@link #undoFrame()}. Call this before changing the board; it saves what is
+   * in the from and to Squares along with the hash key, Piece counts and side
+   * to move. Flips made after this through {@link #flipAndRecord(int)} are
+   * recorded in the same frame.
+   * 
+   * @param from
+   *          index of the Square moved from, or -1
+   * @param to
+   *          index of the Square moved to, or -1
+   */
+  protected final void beginUndoFrame(final int from, final int to) {
+    this.undoStack.push(this.board, this.colorToMove, from, to);
+  }
+
+  /**
+   * Flip the Piece in a Square and record it in the current undo frame.
+   * 
+   * @param index
+   *          the Square index
+   */
+  protected final void flipAndRecord(final int index) {
+    this.board.getSquareAt(index).flip();
+    this.undoStack.recordFlip(index);
+  }
+
+  /**
+   * Take back the move of the latest undo frame: flipped Squares are flipped
+   * back, the from and to Squares get their old contents and the hash key,
+   * Piece counts and side to move are restored. Nothing is allocated on a
+   * board of shared Pieces.
+   */
+  protected final void undoFrame() {
+    setColorToMove(this.undoStack.pop(this.board));
+  }
+
+  /**
+   * Get the undo frames of this Game.
+   * 
+   * @return the undo stack.
+   */
+  public final UndoStack getUndoStack() {
+    return this.undoStack;
+  }
+
   /**
    * Turn text position into a Coordinate.
    * 
@@ -211,8 +387,7 @@ public abstract class Game {
     char rank = text.charAt(1);
     int x = file - 'a';
     int y = rank - '0' - 1;
-    Coordinate coord = new Coordinate(x, y);
-    return coord;
+    return Coordinate.of(x, y);
   }
 
   /**
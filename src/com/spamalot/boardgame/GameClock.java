@@ -0,0 +1,95 @@
+package com.spamalot.boardgame;
+
+/**
+ * A chess style clock: each side starts with a base time and gets an increment
+ * after each move made in time.
+ *
+ * @author gej
+ *
+ */
+public class GameClock {
+  /** Time left for each color, by ordinal. */
+  private final long[] remainingMillis = new long[PieceColor.values().length];
+
+  /** Time added after each move. */
+  private final long incrementMillis;
+
+  /**
+   * Construct a GameClock.
+   *
+   * @param baseMillis
+   *          time each side starts with
+   * @param increment
+   *          time added after each move
+   */
+  public GameClock(final long baseMillis, final long increment) {
+    for (int i = 0; i < this.remainingMillis.length; i++) {
+      this.remainingMillis[i] = baseMillis;
+    }
+    this.incrementMillis = increment;
+  }
+
+  /**
+   * Get the time a color has left.
+   *
+   * @param color
+   *          the color
+   * @return the milliseconds left.
+   */
+  public long getRemainingMillis(final PieceColor color) {
+    return this.remainingMillis[color.ordinal()];
+  }
+
+  /**
+   * Get the time added after each move.
+   *
+   * @return the increment in milliseconds.
+   */
+  public long getIncrementMillis() {
+    return this.incrementMillis;
+  }
+
+  /**
+   * Charge a color for the time of a move. The increment is added if the move
+   * was made in time.
+   *
+   * @param color
+   *          the color that moved
+   * @param elapsedMillis
+   *          time the move took
+   */
+  public void charge(final PieceColor color, final long elapsedMillis) {
+    int i = color.ordinal();
+    this.remainingMillis[i] -= elapsedMillis;
+    if (this.remainingMillis[i] >= 0) {
+      this.remainingMillis[i] += this.incrementMillis;
+    }
+  }
+
+  /**
+   * Check if a color has run out of time.
+   *
+   * @param color
+   *          the color
+   * @return true if the flag has fallen.
+   */
+  public boolean isFlagged(final PieceColor color) {
+    return this.remainingMillis[color.ordinal()] < 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("GameClock [");
+    for (PieceColor color : PieceColor.values()) {
+      sb.append(color.name());
+      sb.append('=');
+      sb.append(getRemainingMillis(color));
+      sb.append("ms, ");
+    }
+    sb.append("increment=");
+    sb.append(this.incrementMillis);
+    sb.append("ms]");
+    return sb.toString();
+  }
+}
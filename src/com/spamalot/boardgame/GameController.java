@@ -2,6 +2,9 @@ package com.spamalot.boardgame;
 
 import com.spamalot.boardgame.ai.MinMaxSearchable;
 import com.spamalot.boardgame.ai.NegaMax;
+import com.spamalot.boardgame.ai.SearchLimits;
+import com.spamalot.boardgame.ai.SearchResult;
+import com.spamalot.boardgame.ai.TimeManager;
 
 import java.util.List;
 import java.util.Scanner;
@@ -77,6 +80,10 @@ public class GameController<T extends Game & MinMaxSearchable<S> & GameControlla
             System.out.println(this.game.getPieceCount());
             break;
           case "play":
+            if (cmd.length > 1 && !cmd[1].trim().isEmpty()) {
+              playOnClock(cmd[1]);
+              break;
+            }
             while (!this.game.isOver()) {
               if (this.game.getColorToMove() == PieceColor.BLACK) {
                 depth = 5;
@@ -95,7 +102,7 @@ public class GameController<T extends Game & MinMaxSearchable<S> & GameControlla
             System.out.println("Done.");
             break;
           case "help":
-            System.out.println("moves board undo help end");
+            System.out.println("moves board undo think play [base increment] save load help end");
             break;
           case "save":
             String arguments = cmd[1];
@@ -125,4 +132,61 @@ public class GameController<T extends Game & MinMaxSearchable<S> & GameControlla
     }
   }
 
+  /**
+   * Play the Game out with each side on a clock. Each side keeps its own
+   * thinker, so its transposition table and move ordering history carry over
+   * from move to move. Prints a usage line instead if the times are not
+   * numbers of seconds.
+   * 
+   * @param arguments
+   *          base time and increment per side in seconds, separated by spaces
+   * @throws GameException
+   *           if something goes wrong
+   */
+  private void playOnClock(final String arguments) throws GameException {
+    String[] times = arguments.trim().split("\\s+");
+    long base;
+    long increment;
+    try {
+      base = (long) (Double.parseDouble(times[0]) * 1000);
+      increment = times.length > 1 ? (long) (Double.parseDouble(times[1]) * 1000) : 0;
+    } catch (NumberFormatException e) {
+      base = -1;
+      increment = -1;
+    }
+    if (times.length > 2 || base <= 0 || increment < 0) {
+      System.out.println("Usage: play [base increment], in seconds, for example play 60 0.5");
+      return;
+    }
+    GameClock clock = new GameClock(base, increment);
+    TimeManager timeManager = new TimeManager();
+    NegaMax<T, S> blackThinker = this.game.getThinker();
+    NegaMax<T, S> whiteThinker = this.game.getThinker();
+
+    while (!this.game.isOver()) {
+      PieceColor side = this.game.getColorToMove();
+      NegaMax<T, S> thinker = side == PieceColor.BLACK ? blackThinker : whiteThinker;
+      long start = System.nanoTime();
+      thinker.setPosition(this.game);
+      SearchLimits limits = timeManager.limitsFor(clock.getRemainingMillis(side), clock.getIncrementMillis(),
+          this.game.getEmptyCount());
+      SearchResult<S> result = thinker.think(limits);
+      clock.charge(side, (System.nanoTime() - start) / 1000000);
+      if (clock.isFlagged(side)) {
+        System.out.println(side + " lost on time.");
+        break;
+      }
+      if (result.getBestMove() == null) {
+        break;
+      }
+      this.game.makeMove(result.getBestMove());
+      System.out.println(this.game);
+      System.out.println(result);
+      System.out.println(clock);
+      System.out.println("Color to move: " + this.game.getColorToMove());
+      System.out.println(this.game.getPieceCount());
+    }
+    System.out.println("Done.");
+  }
+
 }
@@ -0,0 +1,454 @@
+package com.spamalot.boardgame;
+
+/**
+ * Mailbox representation of a Board.
+ *
+ * <p>
+ * The whole board is a single {@code byte[]} with a border of
+ * {@value #BORDER} sentinel Squares on every side. Sentinel Squares read as
+ * {@link #BLOCKED} so neighbor lookups need no range checks: adding one of the
+ * constant deltas of the shared {@link BoardGeometry} to an on board index
+ * always lands inside the array. This is the representation to use for boards
+ * too large for a {@link BitBoard}.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class MailboxBoard {
+
+  /** Value of an empty Square. */
+  public static final byte EMPTY = 0;
+
+  /** Value of a Square holding a White Piece. */
+  public static final byte WHITE = 1;
+
+  /** Value of a Square holding a Black Piece. */
+  public static final byte BLACK = 2;
+
+  /** Value of a blocked or off board Square. */
+  public static final byte BLOCKED = 3;
+
+  /** Width of the sentinel border. */
+  public static final int BORDER = 2;
+
+  /** The shared topology of this board. */
+  private BoardGeometry geometry;
+
+  /** The Squares, including the sentinel border. */
+  private final byte[] cells;
+
+  /** Number of Black Pieces. */
+  private int blackCount;
+
+  /** Number of White Pieces. */
+  private int whiteCount;
+
+  /**
+   * Construct an empty MailboxBoard of given number of files and ranks.
+   *
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   */
+  public MailboxBoard(final int files, final int ranks) {
+    this(BoardGeometry.of(files, ranks));
+  }
+
+  /**
+   * Construct an empty MailboxBoard with a shared geometry.
+   *
+   * @param geo
+   *          the geometry
+   */
+  public MailboxBoard(final BoardGeometry geo) {
+    this.geometry = geo;
+    this.cells = geo.newMailbox();
+  }
+
+  /**
+   * Construct a MailboxBoard holding the blocked Squares and Pieces of a Board.
+   *
+   * @param board
+   *          the Board to copy
+   */
+  public MailboxBoard(final Board board) {
+    this(board.getGeometry());
+
+    for (int rank = 0; rank < getNumRanks(); rank++) {
+      for (int file = 0; file < getNumFiles(); file++) {
+        Piece piece = board.getSquareAt(file, rank).getPiece();
+        if (piece != null) {
+          setPiece(indexOf(file, rank), piece.getColor());
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the value stored for a color.
+   *
+   * @param color
+   *          the color
+   * @return the Square value.
+   */
+  public static byte valueOf(final PieceColor color) {
+    return color == PieceColor.BLACK ? BLACK : WHITE;
+  }
+
+  /**
+   * Get the number of ranks on this board.
+   *
+   * @return the number of ranks.
+   */
+  public int getNumRanks() {
+    return this.geometry.getNumRanks();
+  }
+
+  /**
+   * Get the number of files on this board.
+   *
+   * @return the number of files.
+   */
+  public int getNumFiles() {
+    return this.geometry.getNumFiles();
+  }
+
+  /**
+   * Get the distance between the same file on adjacent ranks.
+   *
+   * @return the stride.
+   */
+  public int getStride() {
+    return this.geometry.getMailboxStride();
+  }
+
+  /**
+   * Get the shared topology of this board.
+   *
+   * @return the geometry.
+   */
+  public BoardGeometry getGeometry() {
+    return this.geometry;
+  }
+
+  /**
+   * Get the mailbox index of a Square.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @return the Square index.
+   */
+  public int indexOf(final int file, final int rank) {
+    return (rank + BORDER) * this.geometry.getMailboxStride() + file + BORDER;
+  }
+
+  /**
+   * Get the file of a mailbox index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the file.
+   */
+  public int getFile(final int sq) {
+    return sq % this.geometry.getMailboxStride() - BORDER;
+  }
+
+  /**
+   * Get the rank of a mailbox index.
+   *
+   * @param sq
+   *          the Square index
+   * @return the rank.
+   */
+  public int getRank(final int sq) {
+    return sq / this.geometry.getMailboxStride() - BORDER;
+  }
+
+  /**
+   * Get the index deltas of the one away ring. The array is shared and must not
+   * be modified.
+   *
+   * @return the deltas.
+   */
+  public int[] getOneAwayDeltas() {
+    return this.geometry.getMailboxOneAwayDeltas();
+  }
+
+  /**
+   * Get the index deltas of the two away ring, including knight jumps. The
+   * array is shared and must not be modified.
+   *
+   * @return the deltas.
+   */
+  public int[] getTwoAwayDeltas() {
+    return this.geometry.getMailboxTwoAwayDeltas();
+  }
+
+  /**
+   * Get the index delta of a Direction.
+   *
+   * @param dir
+   *          the Direction
+   * @return the delta.
+   */
+  public int getDelta(final Direction dir) {
+    return this.geometry.getMailboxDelta(dir);
+  }
+
+  /**
+   * Get the value of a Square. Any index within {@value #BORDER} Squares of the
+   * board reads as {@link #BLOCKED} when off the board.
+   *
+   * @param sq
+   *          the Square index
+   * @return the Square value.
+   */
+  public byte get(final int sq) {
+    return this.cells[sq];
+  }
+
+  /**
+   * Check if a Square can hold a Piece.
+   *
+   * @param sq
+   *          the Square index
+   * @return true if the Square is on the board and is not blocked.
+   */
+  public boolean isPlayable(final int sq) {
+    return this.cells[sq] != BLOCKED;
+  }
+
+  /**
+   * Check if a Square can hold a Piece and is empty.
+   *
+   * @param sq
+   *          the Square index
+   * @return true if the Square is empty.
+   */
+  public boolean isEmpty(final int sq) {
+    return this.cells[sq] == EMPTY;
+  }
+
+  /**
+   * Get the color of the Piece in a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @return the color of the Piece or null if there is none.
+   */
+  public PieceColor getColorAt(final int sq) {
+    switch (this.cells[sq]) {
+      case BLACK:
+        return PieceColor.BLACK;
+      case WHITE:
+        return PieceColor.WHITE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Set a Square as blocked.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void setBlocked(final int sq) {
+    if (this.cells[sq] != BLOCKED) {
+      clearSquare(sq);
+      this.cells[sq] = BLOCKED;
+      this.geometry = this.geometry.withBlocked(this.geometry.fromMailboxIndex(sq));
+    }
+  }
+
+  /**
+   * Put a Piece of a color in a Square, replacing what is there. Blocked
+   * cells, including the border, cannot hold a Piece.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color of the Piece
+   * @throws IllegalArgumentException
+   *           if the cell is blocked
+   */
+  public void setPiece(final int sq, final PieceColor color) {
+    if (this.cells[sq] == BLOCKED) {
+      throw new IllegalArgumentException("Cell " + sq + " is blocked");
+    }
+    clearSquare(sq);
+    if (color == PieceColor.BLACK) {
+      this.cells[sq] = BLACK;
+      this.blackCount++;
+    } else {
+      this.cells[sq] = WHITE;
+      this.whiteCount++;
+    }
+  }
+
+  /**
+   * Remove any Piece from a Square.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void clearSquare(final int sq) {
+    byte value = this.cells[sq];
+    if (value == BLACK) {
+      this.blackCount--;
+      this.cells[sq] = EMPTY;
+    } else if (value == WHITE) {
+      this.whiteCount--;
+      this.cells[sq] = EMPTY;
+    }
+  }
+
+  /**
+   * Flip the Piece in a Square to the opposite color. Does nothing to an empty
+   * or blocked Square.
+   *
+   * @param sq
+   *          the Square index
+   */
+  public void flip(final int sq) {
+    byte value = this.cells[sq];
+    if (value == BLACK) {
+      this.cells[sq] = WHITE;
+      this.blackCount--;
+      this.whiteCount++;
+    } else if (value == WHITE) {
+      this.cells[sq] = BLACK;
+      this.whiteCount--;
+      this.blackCount++;
+    }
+  }
+
+  /**
+   * Flip every opposing Piece one away from a Square to the given color.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color to flip to
+   * @return the number of Pieces flipped.
+   */
+  public int captureOneAway(final int sq, final PieceColor color) {
+    byte opposite = valueOf(color.getOpposite());
+    int flipped = 0;
+    for (int delta : this.geometry.getMailboxOneAwayDeltas()) {
+      if (this.cells[sq + delta] == opposite) {
+        flip(sq + delta);
+        flipped++;
+      }
+    }
+    return flipped;
+  }
+
+  /**
+   * Count the Pieces of a color one away from a Square.
+   *
+   * @param sq
+   *          the Square index
+   * @param color
+   *          the color to count
+   * @return the number of Pieces.
+   */
+  public int countOneAway(final int sq, final PieceColor color) {
+    byte value = valueOf(color);
+    int count = 0;
+    for (int delta : this.geometry.getMailboxOneAwayDeltas()) {
+      if (this.cells[sq + delta] == value) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of Black Pieces.
+   *
+   * @return the Black count.
+   */
+  public int getBlackCount() {
+    return this.blackCount;
+  }
+
+  /**
+   * Get the number of White Pieces.
+   *
+   * @return the White count.
+   */
+  public int getWhiteCount() {
+    return this.whiteCount;
+  }
+
+  /**
+   * Get the number of empty Squares that can be played to.
+   *
+   * @return the empty count.
+   */
+  public int getEmptyCount() {
+    return this.geometry.getNumPlayableSquares() - this.blackCount - this.whiteCount;
+  }
+
+  /**
+   * Get the PieceCount object for this board.
+   *
+   * @return PieceCount object with count values.
+   */
+  public PieceCount getPieceCount() {
+    return new PieceCount(this.blackCount, this.whiteCount);
+  }
+
+  /**
+   * Copy the blocked Squares and Pieces of another MailboxBoard of the same
+   * size into this one.
+   *
+   * @param other
+   *          the MailboxBoard to copy
+   */
+  public void copyFrom(final MailboxBoard other) {
+    if (other.getNumFiles() != getNumFiles() || other.getNumRanks() != getNumRanks()) {
+      throw new IllegalArgumentException("MailboxBoard sizes differ");
+    }
+    System.arraycopy(other.cells, 0, this.cells, 0, this.cells.length);
+    this.geometry = other.geometry;
+    this.blackCount = other.blackCount;
+    this.whiteCount = other.whiteCount;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("   ");
+    for (int j = 0; j < getNumFiles(); j++) {
+      sb.append((char) ('a' + j));
+    }
+    sb.append("\n\n");
+
+    for (int i = 0; i < getNumRanks(); i++) {
+      sb.append(i + 1);
+      sb.append("  ");
+      for (int j = 0; j < getNumFiles(); j++) {
+        int sq = indexOf(j, i);
+        if (this.cells[sq] == BLOCKED) {
+          sb.append('X');
+        } else {
+          PieceColor color = getColorAt(sq);
+          if (color == null) {
+            sb.append(".");
+          } else {
+            sb.append(color);
+          }
+        }
+      }
+      sb.append("\n");
+    }
+
+    return sb.toString();
+  }
+}
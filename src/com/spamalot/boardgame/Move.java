@@ -32,6 +32,12 @@ public class Move implements Comparable<Move> {
   /** The to Coordinate. */
   private Coordinate to;
 
+  /** Index of the from Square, or -1 if not known. */
+  private int fromIndex = -1;
+
+  /** Index of the to Square, or -1 if not known. */
+  private int toIndex = -1;
+
   /** AI evaluation of move. Initialized to min value until evaluated. */
   private int evaluation = Integer.MIN_VALUE;
 
@@ -82,6 +88,7 @@ public class Move implements Comparable<Move> {
    */
   protected void setToCoordinate(final Coordinate toSquare) {
     this.to = toSquare;
+    this.toIndex = -1;
   }
 
   /**
@@ -92,6 +99,66 @@ public class Move implements Comparable<Move> {
    */
   protected void setFromCoordinate(final Coordinate fromSquare) {
     this.from = fromSquare;
+    this.fromIndex = -1;
+  }
+
+  /**
+   * Set the from Square of the Move by index. The Coordinate is the interned
+   * one of the geometry, so nothing is allocated.
+   * 
+   * @param geometry
+   *          the geometry of the board
+   * @param index
+   *          index of the Square being moved from
+   */
+  protected void setFrom(final BoardGeometry geometry, final int index) {
+    this.fromIndex = index;
+    this.from = geometry.getCoordinate(index);
+  }
+
+  /**
+   * Set the to Square of the Move by index. The Coordinate is the interned one
+   * of the geometry, so nothing is allocated.
+   * 
+   * @param geometry
+   *          the geometry of the board
+   * @param index
+   *          index of the Square being moved to
+   */
+  protected void setTo(final BoardGeometry geometry, final int index) {
+    this.toIndex = index;
+    this.to = geometry.getCoordinate(index);
+  }
+
+  /**
+   * Get the index of the from Square.
+   * 
+   * @return the from Square index, or -1 if it was set by Coordinate only.
+   */
+  public int getFromIndex() {
+    return this.fromIndex;
+  }
+
+  /**
+   * Get the index of the to Square.
+   * 
+   * @return the to Square index, or -1 if it was set by Coordinate only.
+   */
+  public int getToIndex() {
+    return this.toIndex;
+  }
+
+  /**
+   * Pack this Move into an int.
+   * 
+   * @param geometry
+   *          the geometry of the board, used when the Move only has
+   *          Coordinates
+   * @return the packed move.
+   * @see PackedMove
+   */
+  public int toPacked(final BoardGeometry geometry) {
+    return PackedMove.of(this, geometry);
   }
 
   /**
@@ -232,7 +299,7 @@ public class Move implements Comparable<Move> {
    */
   @Override
   public int compareTo(final Move move) {
-    return this.evaluation - move.evaluation;
+    return Integer.compare(this.evaluation, move.evaluation);
   }
 
 }
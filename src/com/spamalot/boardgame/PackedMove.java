@@ -0,0 +1,192 @@
+package com.spamalot.boardgame;
+
+/**
+ * Moves packed into a single int, for search code that should not allocate a
+ * {@link Move} per move.
+ *
+ * <p>
+ * Bits 0-11 hold the to Square index, bits 12-23 the from Square index and bits
+ * 24-25 the {@link Move.Type} ordinal plus one. A missing Square is stored as
+ * all ones and read back as -1. Zero is never a valid packed move, so it is
+ * used as {@link #NONE}.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class PackedMove {
+
+  /** No move. */
+  public static final int NONE = 0;
+
+  /** The largest number of Squares a packed move can address. */
+  public static final int MAX_SQUARES = 4095;
+
+  /** Number of bits per Square index. */
+  private static final int SQUARE_BITS = 12;
+
+  /** Mask of a Square index. */
+  private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+  /** Shift of the from Square index. */
+  private static final int FROM_SHIFT = SQUARE_BITS;
+
+  /** Shift of the Type. */
+  private static final int TYPE_SHIFT = 2 * SQUARE_BITS;
+
+  /** Mask of the Type after shifting. */
+  private static final int TYPE_MASK = 3;
+
+  /** The Move Types by ordinal. */
+  private static final Move.Type[] TYPES = Move.Type.values();
+
+  /** The PASS move. */
+  public static final int PASS = encode(Move.Type.PASS, -1, -1);
+
+  /**
+   * Utility class.
+   */
+  private PackedMove() {
+  }
+
+  /**
+   * Pack a move.
+   *
+   * @param type
+   *          the Type of the move
+   * @param from
+   *          index of the from Square, or -1
+   * @param to
+   *          index of the to Square, or -1
+   * @return the packed move.
+   * @throws IllegalArgumentException
+   *           if a Square index is not below {@link #MAX_SQUARES}
+   */
+  public static int encode(final Move.Type type, final int from, final int to) {
+    if (from < -1 || from >= MAX_SQUARES || to < -1 || to >= MAX_SQUARES) {
+      throw new IllegalArgumentException("Cannot pack Squares " + from + " and " + to);
+    }
+    return ((type.ordinal() + 1) << TYPE_SHIFT) | ((from & SQUARE_MASK) << FROM_SHIFT) | (to & SQUARE_MASK);
+  }
+
+  /**
+   * Get the Type of a packed move.
+   *
+   * @param move
+   *          the packed move
+   * @return the Type.
+   */
+  public static Move.Type getType(final int move) {
+    return TYPES[((move >>> TYPE_SHIFT) & TYPE_MASK) - 1];
+  }
+
+  /**
+   * Get the from Square index of a packed move.
+   *
+   * @param move
+   *          the packed move
+   * @return the from Square index, or -1 if there is none.
+   */
+  public static int getFrom(final int move) {
+    int from = (move >>> FROM_SHIFT) & SQUARE_MASK;
+    return from == SQUARE_MASK ? -1 : from;
+  }
+
+  /**
+   * Get the to Square index of a packed move.
+   *
+   * @param move
+   *          the packed move
+   * @return the to Square index, or -1 if there is none.
+   */
+  public static int getTo(final int move) {
+    int to = move & SQUARE_MASK;
+    return to == SQUARE_MASK ? -1 : to;
+  }
+
+  /**
+   * Pack a Move.
+   *
+   * @param move
+   *          the Move
+   * @param geometry
+   *          the geometry of the board, used when the Move only has
+   *          Coordinates
+   * @return the packed move.
+   */
+  public static int of(final Move move, final BoardGeometry geometry) {
+    int from = move.getFromIndex();
+    if (from < 0 && move.getFromCoordinate() != null) {
+      from = geometry.indexOf(move.getFromCoordinate());
+    }
+    int to = move.getToIndex();
+    if (to < 0 && move.getToCoordinate() != null) {
+      to = geometry.indexOf(move.getToCoordinate());
+    }
+    return encode(move.getType(), from, to);
+  }
+
+  /**
+   * Unpack a move into a new Move.
+   *
+   * @param move
+   *          the packed move
+   * @param geometry
+   *          the geometry of the board
+   * @param color
+   *          the color making the move
+   * @return the Move.
+   */
+  public static Move toMove(final int move, final BoardGeometry geometry, final PieceColor color) {
+    Move ret = new Move(getType(move));
+    ret.setColor(color);
+    if (getFrom(move) >= 0) {
+      ret.setFrom(geometry, getFrom(move));
+    }
+    if (getTo(move) >= 0) {
+      ret.setTo(geometry, getTo(move));
+    }
+    return ret;
+  }
+
+  /**
+   * Render a packed move for printing.
+   *
+   * @param move
+   *          the packed move
+   * @param geometry
+   *          the geometry of the board
+   * @return the move as text.
+   */
+  public static String toString(final int move, final BoardGeometry geometry) {
+    if (move == NONE) {
+      return "none";
+    }
+    StringBuilder builder = new StringBuilder();
+    builder.append(getType(move));
+    if (getFrom(move) >= 0) {
+      builder.append(' ');
+      appendSquare(builder, getFrom(move), geometry);
+    }
+    if (getTo(move) >= 0) {
+      builder.append(' ');
+      appendSquare(builder, getTo(move), geometry);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Append a Square in the same form as {@link Square#toString()}.
+   *
+   * @param builder
+   *          where to append
+   * @param sq
+   *          the Square index
+   * @param geometry
+   *          the geometry of the board
+   */
+  private static void appendSquare(final StringBuilder builder, final int sq, final BoardGeometry geometry) {
+    builder.append((char) (geometry.getFile(sq) + 'a'));
+    builder.append(geometry.getRank(sq) + 1);
+  }
+}
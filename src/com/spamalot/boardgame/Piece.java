@@ -3,14 +3,34 @@ package com.spamalot.boardgame;
 /**
  * A piece in a board game.
  *
+ * <p>
+ * Pieces made with the constructor are mutable and flip in place. The shared
+ * Pieces returned by {@link #of(PieceColor)} are immutable flyweights: one per
+ * color, held by any number of Squares. They are flipped with
+ * {@link Square#flip()}, which swaps in the other shared Piece, and are never
+ * copied.
+ * </p>
+ *
  * @author gej
  *
  */
 public class Piece {
 
+  /** The shared White Piece. */
+  private static final Piece WHITE = new Piece(PieceColor.WHITE, true);
+
+  /** The shared Black Piece. */
+  private static final Piece BLACK = new Piece(PieceColor.BLACK, true);
+
   /** Color of this piece. */
   private PieceColor color;
 
+  /** Square this piece is in, if any. Never set for shared Pieces. */
+  private Square square;
+
+  /** Whether this is one of the immutable shared Pieces. */
+  private final boolean shared;
+
   /**
    * Construct a Piece.
    *
@@ -18,12 +38,91 @@ public class Piece {
    *          the color.
    */
   public Piece(final PieceColor clr) {
+    this(clr, false);
+  }
+
+  /**
+   * Construct a Piece.
+   *
+   * @param clr
+   *          the color.
+   * @param isShared
+   *          true for the immutable shared Pieces
+   */
+  private Piece(final PieceColor clr, final boolean isShared) {
     this.setColor(clr);
+    this.shared = isShared;
+  }
+
+  /**
+   * Get the immutable shared Piece of a color.
+   *
+   * @param clr
+   *          the color.
+   * @return the shared Piece.
+   */
+  public static Piece of(final PieceColor clr) {
+    return clr == PieceColor.BLACK ? BLACK : WHITE;
+  }
+
+  /**
+   * Check if this is one of the immutable shared Pieces.
+   *
+   * @return true if this Piece is shared.
+   */
+  public final boolean isShared() {
+    return this.shared;
   }
 
-  /** Flip the color of this piece. */
+  /**
+   * Flip the color of this piece. Shared Pieces cannot be flipped, use
+   * {@link Square#flip()} instead.
+   */
   public final void flip() {
+    if (this.shared) {
+      throw new UnsupportedOperationException("Shared Piece cannot be flipped, flip its Square instead");
+    }
+    assert this.square == null || this.square.getPiece() == this : "Piece is not in its Square";
     setColor(this.color.getOpposite());
+    if (this.square != null) {
+      this.square.pieceFlipped(this.color);
+    }
+  }
+
+  /**
+   * Change the color of this mutable Piece without telling its Square. Used
+   * when the Board restores its counts and hash key itself.
+   *
+   * @param clr
+   *          the color.
+   */
+  final void restoreColor(final PieceColor clr) {
+    if (this.shared) {
+      throw new UnsupportedOperationException("Shared Piece cannot change color");
+    }
+    setColor(clr);
+  }
+
+  /**
+   * Set the Square this Piece is in.
+   *
+   * @param sq
+   *          the Square, or null when the Piece is picked up
+   */
+  final void setSquare(final Square sq) {
+    if (!this.shared) {
+      this.square = sq;
+    }
+  }
+
+  /**
+   * Get the Square this Piece is in.
+   *
+   * @return the Square, or null for a Piece that is not on a board and for
+   *         shared Pieces.
+   */
+  final Square getSquare() {
+    return this.square;
   }
 
   /**
@@ -51,11 +150,14 @@ public class Piece {
   }
 
   /**
-   * Copy this Piece.
+   * Copy this Piece. Shared Pieces are returned as they are.
    * 
    * @return a copy of this Piece.
    */
   final Piece copy() {
+    if (this.shared) {
+      return this;
+    }
     return new Piece(this.color);
   }
 }
@@ -1,6 +1,5 @@
 package com.spamalot.boardgame;
 
-import java.util.EnumMap;
 import java.util.List;
 
 /**
@@ -30,18 +29,30 @@ public class Square {
   /** Piece in the square. */
   private Piece piece;
 
-  /** Coordinate of this square. */
-  private Coordinate coordinate;
+  /** Board this Square is on, kept up to date as Pieces change. */
+  private Board board;
 
-  /** The Squares that are in the first ring around this one. */
+  /** Bits to shift the rank by in the packed position. */
+  private static final int RANK_SHIFT = 16;
+
+  /** Mask of the file in the packed position. */
+  private static final int FILE_MASK = (1 << RANK_SHIFT) - 1;
+
+  /** File and rank of this square, packed as {@code rank << 16 | file}. */
+  private final int position;
+
+  /**
+   * The Squares that are in the first ring around this one. Set by the game,
+   * or built from the shared geometry the first time they are asked for.
+   */
   private Square[] oneAwaySquares;
 
-  /** The Squares that are in the second ring around this one. */
+  /**
+   * The Squares that are in the second ring around this one. Set by the game,
+   * or built from the shared geometry the first time they are asked for.
+   */
   private Square[] twoAwaySquares;
 
-  /** The Squares in Directions. */
-  private EnumMap<Direction, Square> directionMap = new EnumMap<>(Direction.class);
-
   /**
    * Construct an OPEN Square object.
    * 
@@ -66,7 +77,7 @@ public class Square {
    */
   Square(final Type typ, final int file, final int rank) {
     this.type = typ;
-    this.coordinate = new Coordinate(file, rank);
+    this.position = (rank << RANK_SHIFT) | file;
   }
 
   /*
@@ -86,14 +97,7 @@ public class Square {
       return false;
     }
     Square other = (Square) obj;
-    if (this.coordinate == null) {
-      if (other.coordinate != null) {
-        return false;
-      }
-    } else if (!this.coordinate.equals(other.coordinate)) {
-      return false;
-    }
-    return true;
+    return this.position == other.position;
   }
 
   /**
@@ -102,7 +106,7 @@ public class Square {
    * @return the coordinate
    */
   public Coordinate getCoordinate() {
-    return this.coordinate;
+    return Coordinate.of(getFile(), getRank());
   }
 
   /**
@@ -111,7 +115,7 @@ public class Square {
    * @return the numeric file this Square is at.
    */
   public int getFile() {
-    return this.coordinate.getX();
+    return this.position & FILE_MASK;
   }
 
   /**
@@ -120,13 +124,16 @@ public class Square {
    * @return File as a character for printing.
    */
   private char getFileAsChar() {
-    return (char) (this.coordinate.getX() + 'a');
+    return (char) (getFile() + 'a');
   }
 
   /**
    * @return array of Squares that are in the first ring around this Square.
    */
   public Square[] getOneAwaySquares() {
+    if (this.oneAwaySquares == null && this.board != null) {
+      this.oneAwaySquares = this.board.toSquares(this.board.getGeometry().getOneAway(this.board.indexOf(this)));
+    }
     return this.oneAwaySquares;
   }
 
@@ -145,24 +152,32 @@ public class Square {
    * @return the numeric board rank this Square is at.
    */
   public int getRank() {
-    return this.coordinate.getY();
+    return this.position >>> RANK_SHIFT;
   }
 
   /**
-   * Return the Square in the given direction.
+   * Return the Square in the given direction. The neighbor is looked up in the
+   * shared geometry, so no per-Board Direction table is kept.
    * 
    * @param dir
    *          Direction to get Square
-   * @return the Square.
+   * @return the Square, or null if there is no playable Square that way.
    */
   public final Square getSquareInDirection(final Direction dir) {
-    return this.directionMap.get(dir);
+    if (this.board == null) {
+      return null;
+    }
+    int neighbor = this.board.getGeometry().getNeighbor(this.board.indexOf(this), dir);
+    return neighbor < 0 ? null : this.board.getSquareAt(neighbor);
   }
 
   /**
    * @return array of Squares that are in the second ring around this Square.
    */
   public Square[] getTwoAwaySquares() {
+    if (this.twoAwaySquares == null && this.board != null) {
+      this.twoAwaySquares = this.board.toSquares(this.board.getGeometry().getTwoAway(this.board.indexOf(this)));
+    }
     return this.twoAwaySquares;
   }
 
@@ -175,7 +190,7 @@ public class Square {
   public int hashCode() {
     final int prime = 31;
     int result = 1;
-    result = prime * result + this.coordinate.hashCode();
+    result = prime * result + this.position;
     return result;
   }
 
@@ -196,16 +211,126 @@ public class Square {
   }
 
   /**
-   * Remove and return a piece from the Square.
+   * Remove and return a piece from the Square. A Piece that has already been
+   * put in another Square keeps that Square.
    * 
    * @return the Piece in this Square.
    */
   public Piece pickupPiece() {
     Piece ret = this.piece;
     this.piece = null;
+    if (ret != null) {
+      if (ret.getSquare() == this) {
+        ret.setSquare(null);
+      }
+      if (this.board != null) {
+        this.board.pieceRemoved(this, ret.getColor());
+      }
+    }
     return ret;
   }
 
+  /**
+   * Flip the Piece in this Square to the opposite color. A shared Piece is
+   * replaced by the shared Piece of the other color, so nothing is allocated.
+   * Does nothing to an empty Square.
+   */
+  public void flip() {
+    Piece pc = this.piece;
+    if (pc == null) {
+      return;
+    }
+    if (pc.isShared()) {
+      this.piece = Piece.of(pc.getColor().getOpposite());
+      pieceFlipped(this.piece.getColor());
+    } else {
+      pc.flip();
+    }
+  }
+
+  /**
+   * Put the shared Piece of a color in this Square.
+   * 
+   * @param color
+   *          the color of the Piece
+   */
+  public void setColor(final PieceColor color) {
+    setPiece(Piece.of(color));
+  }
+
+  /**
+   * Get the color of the Piece in this Square.
+   * 
+   * @return the color, or null if there is no Piece.
+   */
+  public PieceColor getColor() {
+    return this.piece == null ? null : this.piece.getColor();
+  }
+
+  /**
+   * Put a Piece in this Square without updating the Board's counts and hash
+   * key. Used when the Board restores those itself.
+   * 
+   * @param pc
+   *          the Piece, or null to empty the Square
+   */
+  final void restorePiece(final Piece pc) {
+    if (this.piece != null && this.piece.getSquare() == this) {
+      this.piece.setSquare(null);
+    }
+    this.piece = pc;
+    if (pc != null) {
+      pc.setSquare(this);
+    }
+  }
+
+  /**
+   * Put a Piece of a color in this Square without updating the Board's counts
+   * and hash key. A mutable Piece already here is recolored in place. Otherwise
+   * the Square gets a new mutable Piece if its Board has held mutable Pieces,
+   * and the shared Piece if not.
+   * 
+   * @param color
+   *          the color, or null to empty the Square
+   */
+  final void restoreColor(final PieceColor color) {
+    Piece pc = this.piece;
+    if (color == null) {
+      restorePiece(null);
+    } else if (pc != null && !pc.isShared() && pc.getSquare() == this) {
+      pc.restoreColor(color);
+    } else if (this.board != null && this.board.hasMutablePieces()) {
+      restorePiece(new Piece(color));
+    } else {
+      restorePiece(Piece.of(color));
+    }
+    if (this.board != null) {
+      this.board.pieceRestored(this, color);
+    }
+  }
+
+  /**
+   * Set the Board this Square is on.
+   * 
+   * @param b
+   *          the Board
+   */
+  final void setBoard(final Board b) {
+    this.board = b;
+  }
+
+  /**
+   * Tell the Board that the Piece in this Square changed color.
+   * 
+   * @param newColor
+   *          the color the Piece changed to
+   */
+  final void pieceFlipped(final PieceColor newColor) {
+    if (this.board != null) {
+      this.board.pieceFlipped(this, newColor);
+    }
+  }
+
   /**
    * Set this as a blocked square.
    */
@@ -224,6 +349,15 @@ public class Square {
     oneAwaySqs.toArray(this.oneAwaySquares);
   }
 
+  /**
+   * Forget the one and two away Squares, so that they are built again from the
+   * geometry the next time they are asked for.
+   */
+  final void clearNeighbors() {
+    this.oneAwaySquares = null;
+    this.twoAwaySquares = null;
+  }
+
   /**
    * Set the Piece in this Square.
    * 
@@ -231,19 +365,35 @@ public class Square {
    *          Piece to set in this Square
    */
   public void setPiece(final Piece pc) {
+    if (this.piece != null) {
+      pickupPiece();
+    }
     this.piece = pc;
+    if (pc != null) {
+      pc.setSquare(this);
+      if (this.board != null) {
+        this.board.pieceAdded(this, pc.getColor());
+        if (!pc.isShared()) {
+          this.board.mutablePieceAdded();
+        }
+      }
+    }
   }
 
   /**
-   * Set the Square in the direction.
+   * Estimate the bytes used by this Square and the arrays only it refers to.
+   * Shared Pieces and the neighbor Squares themselves are not counted.
    * 
-   * @param dir
-   *          the Direction
-   * @param sq
-   *          the Square in the direction
+   * @return the estimated footprint in bytes.
    */
-  final void setSquareInDirection(final Direction dir, final Square sq) {
-    this.directionMap.put(dir, sq);
+  final long estimateFootprint() {
+    long bytes = Footprint.shallowSize(this);
+    bytes += Footprint.shallowSize(this.oneAwaySquares);
+    bytes += Footprint.shallowSize(this.twoAwaySquares);
+    if (this.piece != null && !this.piece.isShared()) {
+      bytes += Footprint.shallowSize(this.piece);
+    }
+    return bytes;
   }
 
   /**
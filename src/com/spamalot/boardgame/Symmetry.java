@@ -0,0 +1,183 @@
+package com.spamalot.boardgame;
+
+/**
+ * The eight symmetries of a square board: four rotations and four reflections.
+ * Rectangular boards only have the four that do not swap files and ranks.
+ *
+ * @author gej
+ *
+ */
+public enum Symmetry {
+  /** Leave the board as it is. */
+  IDENTITY(false) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return file;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return rank;
+    }
+  },
+  /** Rotate a quarter turn. */
+  ROTATE_90(true) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return ranks - 1 - rank;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return file;
+    }
+  },
+  /** Rotate a half turn. */
+  ROTATE_180(false) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return files - 1 - file;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return ranks - 1 - rank;
+    }
+  },
+  /** Rotate three quarter turns. */
+  ROTATE_270(true) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return rank;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return files - 1 - file;
+    }
+  },
+  /** Reverse the order of the files. */
+  MIRROR_FILES(false) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return files - 1 - file;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return rank;
+    }
+  },
+  /** Reverse the order of the ranks. */
+  MIRROR_RANKS(false) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return file;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return ranks - 1 - rank;
+    }
+  },
+  /** Reflect in the main diagonal. */
+  TRANSPOSE(true) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return rank;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return file;
+    }
+  },
+  /** Reflect in the anti diagonal. */
+  ANTI_TRANSPOSE(true) {
+    @Override
+    int mapFile(final int file, final int rank, final int files, final int ranks) {
+      return ranks - 1 - rank;
+    }
+
+    @Override
+    int mapRank(final int file, final int rank, final int files, final int ranks) {
+      return files - 1 - file;
+    }
+  };
+
+  /** Whether this symmetry turns files into ranks. */
+  private final boolean swapsAxes;
+
+  /** The symmetry that undoes this one. */
+  private Symmetry inverse;
+
+  static {
+    IDENTITY.inverse = IDENTITY;
+    ROTATE_90.inverse = ROTATE_270;
+    ROTATE_180.inverse = ROTATE_180;
+    ROTATE_270.inverse = ROTATE_90;
+    MIRROR_FILES.inverse = MIRROR_FILES;
+    MIRROR_RANKS.inverse = MIRROR_RANKS;
+    TRANSPOSE.inverse = TRANSPOSE;
+    ANTI_TRANSPOSE.inverse = ANTI_TRANSPOSE;
+  }
+
+  /**
+   * Construct a Symmetry.
+   *
+   * @param swaps
+   *          true if files become ranks
+   */
+  Symmetry(final boolean swaps) {
+    this.swapsAxes = swaps;
+  }
+
+  /**
+   * Check if this symmetry turns files into ranks, which only works on square
+   * boards.
+   *
+   * @return true if files and ranks are swapped.
+   */
+  public boolean swapsAxes() {
+    return this.swapsAxes;
+  }
+
+  /**
+   * Get the symmetry that undoes this one.
+   *
+   * @return the inverse.
+   */
+  public Symmetry getInverse() {
+    return this.inverse;
+  }
+
+  /**
+   * Get the file a Square moves to.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   * @return the new file.
+   */
+  abstract int mapFile(int file, int rank, int files, int ranks);
+
+  /**
+   * Get the rank a Square moves to.
+   *
+   * @param file
+   *          the file
+   * @param rank
+   *          the rank
+   * @param files
+   *          width of the board
+   * @param ranks
+   *          height of the board
+   * @return the new rank.
+   */
+  abstract int mapRank(int file, int rank, int files, int ranks);
+}
@@ -0,0 +1,237 @@
+package com.spamalot.boardgame;
+
+import java.util.Arrays;
+
+/**
+ * Stack of undo frames kept in preallocated primitive arrays. Each frame holds
+ * the from and to Squares of a move with what was in them before, the Squares
+ * whose Pieces were flipped, and the hash key, Piece counts and side to move
+ * from before the move. Pushing and popping a frame costs O(changes) and, on
+ * a Board of shared Pieces, does not allocate once the arrays have grown to the
+ * depth of the game.
+ *
+ * @author gej
+ *
+ */
+public final class UndoStack {
+
+  /** Content code of an empty Square. */
+  static final byte EMPTY = 0;
+
+  /** Index of the from Square of each frame, or -1. */
+  private int[] from;
+
+  /** Index of the to Square of each frame, or -1. */
+  private int[] to;
+
+  /** Content code of the from Square before each move. */
+  private byte[] fromContent;
+
+  /** Content code of the to Square before each move. */
+  private byte[] toContent;
+
+  /** Where the flipped Squares of each frame start in {@link #flipped}. */
+  private int[] flipStart;
+
+  /** Board hash key before each move. */
+  private long[] hashKey;
+
+  /** Black count before each move. */
+  private int[] blackCount;
+
+  /** White count before each move. */
+  private int[] whiteCount;
+
+  /** Side to move before each move. */
+  private PieceColor[] colorToMove;
+
+  /** Flipped Squares of every frame, one after another. */
+  private int[] flipped;
+
+  /** Number of frames on the stack. */
+  private int depth;
+
+  /** Number of flipped Squares recorded over all frames. */
+  private int flipCount;
+
+  /**
+   * Construct an empty UndoStack.
+   *
+   * @param frames
+   *          how many frames to make room for up front
+   * @param flips
+   *          how many flipped Squares to make room for up front
+   */
+  public UndoStack(final int frames, final int flips) {
+    int f = Math.max(frames, 1);
+    this.from = new int[f];
+    this.to = new int[f];
+    this.fromContent = new byte[f];
+    this.toContent = new byte[f];
+    this.flipStart = new int[f];
+    this.hashKey = new long[f];
+    this.blackCount = new int[f];
+    this.whiteCount = new int[f];
+    this.colorToMove = new PieceColor[f];
+    this.flipped = new int[Math.max(flips, 1)];
+  }
+
+  /**
+   * Get the content code of a Square.
+   *
+   * @param sq
+   *          the Square
+   * @return {@link #EMPTY}, or the color ordinal plus one.
+   */
+  static byte contentOf(final Square sq) {
+    Piece p = sq.getPiece();
+    return p == null ? EMPTY : (byte) (p.getColor().ordinal() + 1);
+  }
+
+  /**
+   * Push a frame.
+   *
+   * @param board
+   *          the Board before the move
+   * @param toMove
+   *          the side to move before the move
+   * @param fromSq
+   *          index of the from Square, or -1
+   * @param toSq
+   *          index of the to Square, or -1
+   */
+  void push(final Board board, final PieceColor toMove, final int fromSq, final int toSq) {
+    if (this.depth == this.from.length) {
+      grow();
+    }
+    int d = this.depth++;
+    this.from[d] = fromSq;
+    this.to[d] = toSq;
+    this.fromContent[d] = fromSq < 0 ? EMPTY : contentOf(board.getSquareAt(fromSq));
+    this.toContent[d] = toSq < 0 ? EMPTY : contentOf(board.getSquareAt(toSq));
+    this.flipStart[d] = this.flipCount;
+    this.hashKey[d] = board.getHashKey();
+    this.blackCount[d] = board.getBlackCount();
+    this.whiteCount[d] = board.getWhiteCount();
+    this.colorToMove[d] = toMove;
+  }
+
+  /**
+   * Record a flipped Square in the top frame.
+   *
+   * @param sq
+   *          index of the Square
+   */
+  void recordFlip(final int sq) {
+    if (this.flipCount == this.flipped.length) {
+      this.flipped = Arrays.copyOf(this.flipped, this.flipped.length * 2);
+    }
+    this.flipped[this.flipCount++] = sq;
+  }
+
+  /**
+   * Pop the top frame and put the Board back the way it was before its move.
+   * Squares get back the same kind of Piece they lost: mutable Pieces on a
+   * Board that has held them, shared Pieces otherwise.
+   *
+   * @param board
+   *          the Board
+   * @return the side to move before the move.
+   */
+  PieceColor pop(final Board board) {
+    int d = --this.depth;
+    for (int i = this.flipCount - 1; i >= this.flipStart[d]; i--) {
+      Square sq = board.getSquareAt(this.flipped[i]);
+      sq.restoreColor(sq.getColor().getOpposite());
+    }
+    this.flipCount = this.flipStart[d];
+    if (this.to[d] >= 0) {
+      board.getSquareAt(this.to[d]).restoreColor(colorOf(this.toContent[d]));
+    }
+    if (this.from[d] >= 0) {
+      board.getSquareAt(this.from[d]).restoreColor(colorOf(this.fromContent[d]));
+    }
+    board.restoreState(this.hashKey[d], this.blackCount[d], this.whiteCount[d]);
+    assert board.isConsistent() : "Undo left counts or hash key that do not match the Squares";
+    PieceColor toMove = this.colorToMove[d];
+    this.colorToMove[d] = null;
+    return toMove;
+  }
+
+  /**
+   * Get the color of a content code.
+   *
+   * @param content
+   *          the content code
+   * @return the color, or null for an empty Square.
+   */
+  private static PieceColor colorOf(final byte content) {
+    if (content == EMPTY) {
+      return null;
+    }
+    return content == PieceColor.BLACK.ordinal() + 1 ? PieceColor.BLACK : PieceColor.WHITE;
+  }
+
+  /**
+   * Double the room for frames.
+   */
+  private void grow() {
+    int f = this.from.length * 2;
+    this.from = Arrays.copyOf(this.from, f);
+    this.to = Arrays.copyOf(this.to, f);
+    this.fromContent = Arrays.copyOf(this.fromContent, f);
+    this.toContent = Arrays.copyOf(this.toContent, f);
+    this.flipStart = Arrays.copyOf(this.flipStart, f);
+    this.hashKey = Arrays.copyOf(this.hashKey, f);
+    this.blackCount = Arrays.copyOf(this.blackCount, f);
+    this.whiteCount = Arrays.copyOf(this.whiteCount, f);
+    this.colorToMove = Arrays.copyOf(this.colorToMove, f);
+  }
+
+  /**
+   * Get the number of frames on the stack.
+   *
+   * @return the depth.
+   */
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Get the from Square of the top frame.
+   *
+   * @return index of the from Square, or -1.
+   */
+  public int getFrom() {
+    return this.from[this.depth - 1];
+  }
+
+  /**
+   * Get the to Square of the top frame.
+   *
+   * @return index of the to Square, or -1.
+   */
+  public int getTo() {
+    return this.to[this.depth - 1];
+  }
+
+  /**
+   * Get the number of Squares flipped by the move of the top frame.
+   *
+   * @return the number of flips.
+   */
+  public int getFlipCount() {
+    return this.flipCount - this.flipStart[this.depth - 1];
+  }
+
+  /**
+   * Get a Square flipped by the move of the top frame.
+   *
+   * @param i
+   *          which flip, from 0 to {@link #getFlipCount()} - 1
+   * @return index of the flipped Square.
+   */
+  public int getFlip(final int i) {
+    return this.flipped[this.flipStart[this.depth - 1] + i];
+  }
+}
@@ -0,0 +1,62 @@
+package com.spamalot.boardgame;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ *
+ * <p>
+ * The key of a position is the XOR of the key of every (Square, color) pair on
+ * the board, plus {@link #BLACK_TO_MOVE} when Black is to move. Keys come from
+ * a fixed seed so the key of a position is the same in every run and process.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class Zobrist {
+
+  /** Seed of the key sequence. */
+  private static final long SEED = 0x5DEECE66DL;
+
+  /** Key to XOR in when Black is to move. */
+  public static final long BLACK_TO_MOVE;
+
+  static {
+    BLACK_TO_MOVE = new SplittableRandom(~SEED).nextLong();
+  }
+
+  /**
+   * Utility class.
+   */
+  private Zobrist() {
+  }
+
+  /**
+   * Make the keys of every (Square, color) pair on a board. The keys of a
+   * Square index are the same for every board size.
+   *
+   * @param numSquares
+   *          the number of Squares
+   * @return the keys, indexed by {@code sq * 2 + color.ordinal()}.
+   */
+  static long[] newSquareKeys(final int numSquares) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    long[] keys = new long[numSquares * 2];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextLong();
+    }
+    return keys;
+  }
+
+  /**
+   * Get the side to move part of a key.
+   *
+   * @param toMove
+   *          the color to move
+   * @return the key.
+   */
+  public static long sideKey(final PieceColor toMove) {
+    return toMove == PieceColor.BLACK ? BLACK_TO_MOVE : 0L;
+  }
+}
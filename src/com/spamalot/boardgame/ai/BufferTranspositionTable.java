@@ -0,0 +1,264 @@
+package com.spamalot.boardgame.ai;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Transposition table on chunks of ByteBuffers.
+ *
+ * <p>
+ * Buckets are 64 bytes, one cache line, and hold four entries of two longs
+ * each. The first entry is depth preferred as in
+ * {@link HeapTranspositionTable}; the other three are replaced oldest and then
+ * shallowest first. A probe reads one bucket, so a bucket found from the key
+ * can be prefetched before it is needed. A single ByteBuffer holds at most 2GB,
+ * so the table is split into chunks of a power of two buckets.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+abstract class BufferTranspositionTable implements TranspositionTable {
+
+  /** Bytes in a megabyte. */
+  static final long MEGABYTE = 1L << 20;
+
+  /** Bytes in a bucket, the size of a cache line. */
+  static final int BUCKET_BYTES = 64;
+
+  /** Entries in a bucket. */
+  private static final int ENTRIES = 4;
+
+  /** Bytes in an entry. */
+  private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+  /** Largest number of buckets in a chunk: 1GB. */
+  static final int MAX_CHUNK_BUCKETS = 1 << 24;
+
+  /** Bytes cleared by one task of {@link #clear()}. */
+  private static final int CLEAR_SLICE_BYTES = 1 << 24;
+
+  /** The chunks, each a whole number of 64 byte aligned buckets. */
+  private final ByteBuffer[] chunks;
+
+  /** Log base 2 of the number of buckets in a chunk. */
+  private final int chunkShift;
+
+  /** Mask turning a bucket number into a bucket within a chunk. */
+  private final long chunkMask;
+
+  /** Mask turning a key into a bucket number. */
+  private final long bucketMask;
+
+  /** Age of the current search. */
+  private final AtomicInteger age = new AtomicInteger();
+
+  /**
+   * Construct a BufferTranspositionTable on chunks made by the subclass.
+   *
+   * @param buffers
+   *          the chunks, all the same power of two number of buckets long
+   */
+  BufferTranspositionTable(final ByteBuffer[] buffers) {
+    this.chunks = buffers;
+    long chunkBuckets = buffers[0].capacity() / BUCKET_BYTES;
+    this.chunkShift = Long.numberOfTrailingZeros(chunkBuckets);
+    this.chunkMask = chunkBuckets - 1;
+    this.bucketMask = chunkBuckets * buffers.length - 1;
+  }
+
+  /**
+   * Get the number of buckets that fit in a size, rounded down to a power of
+   * two.
+   *
+   * @param megabytes
+   *          size of the table in megabytes
+   * @return the number of buckets.
+   */
+  static long bucketsFor(final long megabytes) {
+    return Long.highestOneBit(Math.max(1, megabytes * MEGABYTE / BUCKET_BYTES));
+  }
+
+  /**
+   * Get the number of buckets in each chunk of a table.
+   *
+   * @param buckets
+   *          number of buckets in the table
+   * @return the number of buckets in a chunk.
+   */
+  static int chunkBucketsFor(final long buckets) {
+    return (int) Math.min(buckets, MAX_CHUNK_BUCKETS);
+  }
+
+  /**
+   * Get the chunk holding the bucket of a key.
+   *
+   * @param key
+   *          Zobrist key of the position
+   * @return the chunk.
+   */
+  private ByteBuffer chunkOf(final long key) {
+    return this.chunks[(int) ((key & this.bucketMask) >>> this.chunkShift)];
+  }
+
+  /**
+   * Get the byte offset of the bucket of a key within its chunk.
+   *
+   * @param key
+   *          Zobrist key of the position
+   * @return the offset.
+   */
+  private int offsetOf(final long key) {
+    return (int) (key & this.chunkMask) * BUCKET_BYTES;
+  }
+
+  @Override
+  public final long probe(final long key) {
+    ByteBuffer chunk = chunkOf(key);
+    int base = offsetOf(key);
+    for (int i = 0; i < ENTRIES; i++) {
+      int off = base + i * ENTRY_BYTES;
+      long data = chunk.getLong(off + Long.BYTES);
+      if ((chunk.getLong(off) ^ data) == key && data != TranspositionEntry.MISS) {
+        return data;
+      }
+    }
+    return TranspositionEntry.MISS;
+  }
+
+  @Override
+  public final void store(final long key, final int depth, final int bound, final int score, final int move) {
+    ByteBuffer chunk = chunkOf(key);
+    int base = offsetOf(key);
+    int a = this.age.get() & (TranspositionEntry.AGES - 1);
+
+    int slot = -1;
+    int storedMove = move;
+    for (int i = 0; i < ENTRIES && slot < 0; i++) {
+      int off = base + i * ENTRY_BYTES;
+      long old = chunk.getLong(off + Long.BYTES);
+      if ((chunk.getLong(off) ^ old) == key && old != TranspositionEntry.MISS) {
+        slot = i;
+        if (storedMove == 0) {
+          storedMove = TranspositionEntry.getMove(old);
+        }
+      }
+    }
+
+    if (slot < 0) {
+      long first = chunk.getLong(base + Long.BYTES);
+      if (first == TranspositionEntry.MISS || depth >= TranspositionEntry.getDepth(first)
+          || TranspositionEntry.getAge(first) != a) {
+        slot = 0;
+      } else {
+        slot = replacementSlot(chunk, base, a);
+      }
+    }
+
+    long data = TranspositionEntry.pack(depth, bound, score, storedMove, a);
+    int off = base + slot * ENTRY_BYTES;
+    chunk.putLong(off, key ^ data);
+    chunk.putLong(off + Long.BYTES, data);
+  }
+
+  /**
+   * Choose which of the always replace entries of a bucket to overwrite: an
+   * empty one, else one from an older search, else the shallowest.
+   *
+   * @param chunk
+   *          the chunk
+   * @param base
+   *          offset of the bucket
+   * @param a
+   *          age of the current search
+   * @return the entry number.
+   */
+  private static int replacementSlot(final ByteBuffer chunk, final int base, final int a) {
+    int slot = 1;
+    int worst = Integer.MAX_VALUE;
+    for (int i = 1; i < ENTRIES; i++) {
+      long data = chunk.getLong(base + i * ENTRY_BYTES + Long.BYTES);
+      if (data == TranspositionEntry.MISS) {
+        return i;
+      }
+      int value = TranspositionEntry.getDepth(data);
+      if (TranspositionEntry.getAge(data) != a) {
+        value -= TranspositionEntry.MAX_DEPTH + 1;
+      }
+      if (value < worst) {
+        worst = value;
+        slot = i;
+      }
+    }
+    return slot;
+  }
+
+  @Override
+  public int newSearch(final int seenAge) {
+    if (this.age.compareAndSet(seenAge, seenAge + 1)) {
+      return seenAge + 1;
+    }
+    return this.age.get();
+  }
+
+  @Override
+  public final int getAge() {
+    return this.age.get();
+  }
+
+  /**
+   * Set the age of the current search.
+   *
+   * @param a
+   *          the age
+   */
+  final void setAge(final int a) {
+    this.age.set(a);
+  }
+
+  /**
+   * Remove every entry. Slices of the chunks are cleared in parallel, so this
+   * is the thing to call between games rather than making a new table.
+   */
+  @Override
+  public final void clear() {
+    int chunkBytes = this.chunks[0].capacity();
+    int slice = Math.min(chunkBytes, CLEAR_SLICE_BYTES);
+    int slicesPerChunk = chunkBytes / slice;
+    IntStream.range(0, this.chunks.length * slicesPerChunk).parallel().forEach(i -> {
+      int start = (i % slicesPerChunk) * slice;
+      clearRange(this.chunks[i / slicesPerChunk], start, start + slice);
+    });
+  }
+
+  /**
+   * Zero part of a chunk.
+   *
+   * @param chunk
+   *          the chunk
+   * @param start
+   *          first byte to clear
+   * @param end
+   *          byte after the last one to clear
+   */
+  private static void clearRange(final ByteBuffer chunk, final int start, final int end) {
+    for (int off = start; off < end; off += Long.BYTES) {
+      chunk.putLong(off, 0L);
+    }
+  }
+
+  @Override
+  public final long getCapacity() {
+    return (this.bucketMask + 1) * ENTRIES;
+  }
+
+  /**
+   * Get the chunks of this table.
+   *
+   * @return the chunks.
+   */
+  final ByteBuffer[] getChunks() {
+    return this.chunks;
+  }
+}
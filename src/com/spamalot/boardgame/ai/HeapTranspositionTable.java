@@ -0,0 +1,110 @@
+package com.spamalot.boardgame.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transposition table on a {@code long[]}.
+ *
+ * <p>
+ * Buckets hold two entries of two longs each. The first entry is depth
+ * preferred: it is only replaced by a deeper or equal search, by the same
+ * position or by an entry from an older search. The second entry is always
+ * replaced. A bucket is 32 bytes, so two buckets share a cache line.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class HeapTranspositionTable implements TranspositionTable {
+
+  /** Bytes in a megabyte. */
+  private static final long MEGABYTE = 1L << 20;
+
+  /** Longs in a bucket. */
+  private static final int BUCKET_LONGS = 4;
+
+  /** Bytes in a bucket. */
+  private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+
+  /** The buckets. */
+  private final long[] table;
+
+  /** Mask turning a key into a bucket number. */
+  private final int bucketMask;
+
+  /** Age of the current search. */
+  private final AtomicInteger age = new AtomicInteger();
+
+  /**
+   * Construct a HeapTranspositionTable using at most the given memory. The
+   * number of buckets is rounded down to a power of two.
+   *
+   * @param megabytes
+   *          size of the table in megabytes
+   */
+  public HeapTranspositionTable(final int megabytes) {
+    long buckets = Long.highestOneBit(Math.max(1, megabytes * MEGABYTE / BUCKET_BYTES));
+    buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_LONGS));
+    this.table = new long[(int) buckets * BUCKET_LONGS];
+    this.bucketMask = (int) buckets - 1;
+  }
+
+  @Override
+  public long probe(final long key) {
+    int i = ((int) key & this.bucketMask) * BUCKET_LONGS;
+    long data = this.table[i + 1];
+    if ((this.table[i] ^ data) == key && data != TranspositionEntry.MISS) {
+      return data;
+    }
+    data = this.table[i + 3];
+    if ((this.table[i + 2] ^ data) == key && data != TranspositionEntry.MISS) {
+      return data;
+    }
+    return TranspositionEntry.MISS;
+  }
+
+  @Override
+  public void store(final long key, final int depth, final int bound, final int score, final int move) {
+    int i = ((int) key & this.bucketMask) * BUCKET_LONGS;
+    int a = this.age.get();
+    long old = this.table[i + 1];
+    boolean sameKey = (this.table[i] ^ old) == key;
+    int storedMove = move;
+    if (storedMove == 0 && sameKey) {
+      storedMove = TranspositionEntry.getMove(old);
+    }
+    long data = TranspositionEntry.pack(depth, bound, score, storedMove, a);
+    if (old == TranspositionEntry.MISS || sameKey || depth >= TranspositionEntry.getDepth(old)
+        || TranspositionEntry.getAge(old) != (a & (TranspositionEntry.AGES - 1))) {
+      this.table[i] = key ^ data;
+      this.table[i + 1] = data;
+    } else {
+      this.table[i + 2] = key ^ data;
+      this.table[i + 3] = data;
+    }
+  }
+
+  @Override
+  public int newSearch(final int seenAge) {
+    if (this.age.compareAndSet(seenAge, seenAge + 1)) {
+      return seenAge + 1;
+    }
+    return this.age.get();
+  }
+
+  @Override
+  public int getAge() {
+    return this.age.get();
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(this.table, 0L);
+  }
+
+  @Override
+  public long getCapacity() {
+    return this.table.length / 2;
+  }
+}
@@ -0,0 +1,155 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.BoardGeometry;
+import com.spamalot.boardgame.Move;
+import com.spamalot.boardgame.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * The usual move ordering: the hash or principal variation move first, then
+ * the two killer moves of the ply, then the counter move of the move before,
+ * then the rest by their butterfly history score.
+ *
+ * <p>
+ * The history table is indexed by from and to Square, with a spare row for
+ * moves without a from Square. Boards too large for that to fit in
+ * {@value #MAX_HISTORY_ENTRIES} entries index history by to Square only, so the
+ * table never takes more than 4 MB. The counter move table is indexed by the
+ * side to move and the to Square of the move before, so it takes
+ * {@code 8 * (squares + 1)} bytes.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class HeuristicMoveOrderer implements MoveOrderer {
+
+  /** Score of the hash or principal variation move. */
+  private static final int FIRST_SCORE = 1 << 30;
+
+  /** Score of the first killer move. */
+  private static final int KILLER_SCORE = 1 << 29;
+
+  /** Score of the counter move. */
+  private static final int COUNTER_SCORE = 1 << 28;
+
+  /** History scores are halved when one gets this large. */
+  private static final int HISTORY_LIMIT = 1 << 27;
+
+  /** Most entries of a from and to Square history table. */
+  private static final int MAX_HISTORY_ENTRIES = 1 << 20;
+
+  /** Deepest ply killer moves are kept for. */
+  private static final int MAX_PLY = 128;
+
+  /** Two killer moves for each ply, the latest first. */
+  private final int[] killers = new int[2 * MAX_PLY];
+
+  /** History score of each from and to Square pair, or of each to Square. */
+  private int[] history = new int[0];
+
+  /** Whether history is indexed by from and to Square. */
+  private boolean butterfly;
+
+  /** Counter move of each side to move and to Square of the move before. */
+  private int[] counters = new int[0];
+
+  /** Number of Squares on the board searched. */
+  private int numSquares = -1;
+
+  @Override
+  public void newSearch(final BoardGeometry geometry) {
+    Arrays.fill(this.killers, PackedMove.NONE);
+    int n = geometry.getNumSquares();
+    if (n != this.numSquares) {
+      this.numSquares = n;
+      this.butterfly = (long) (n + 1) * (n + 1) <= MAX_HISTORY_ENTRIES;
+      this.history = new int[this.butterfly ? (n + 1) * (n + 1) : n + 1];
+      this.counters = new int[2 * (n + 1)];
+    } else {
+      for (int i = 0; i < this.history.length; i++) {
+        this.history[i] >>= 1;
+      }
+    }
+  }
+
+  /**
+   * Get the history index of a packed move: its from and to Square, or just
+   * its to Square on large boards, shifted by one so a missing Square is 0.
+   *
+   * @param move
+   *          the packed move
+   * @return the index.
+   */
+  private int historyIndex(final int move) {
+    if (!this.butterfly) {
+      return PackedMove.getTo(move) + 1;
+    }
+    return (PackedMove.getFrom(move) + 1) * (this.numSquares + 1) + PackedMove.getTo(move) + 1;
+  }
+
+  /**
+   * Get the counter move index of the move that led to a node.
+   *
+   * @param previousMove
+   *          the packed move before
+   * @param color
+   *          side to move, 1 for White and -1 for Black
+   * @return the index.
+   */
+  private int counterIndex(final int previousMove, final int color) {
+    return (color > 0 ? this.numSquares + 1 : 0) + PackedMove.getTo(previousMove) + 1;
+  }
+
+  @Override
+  public void scoreMoves(final MoveBuffer<? extends Move> moves, final int ply, final int firstMove,
+      final int previousMove, final int color) {
+    int killer1 = PackedMove.NONE;
+    int killer2 = PackedMove.NONE;
+    if (ply < MAX_PLY) {
+      killer1 = this.killers[2 * ply];
+      killer2 = this.killers[2 * ply + 1];
+    }
+    int counter = PackedMove.NONE;
+    if (previousMove != PackedMove.NONE) {
+      counter = this.counters[counterIndex(previousMove, color)];
+    }
+
+    for (int i = 0; i < moves.size(); i++) {
+      int packed = moves.getPacked(i);
+      int score;
+      if (packed == firstMove) {
+        score = FIRST_SCORE;
+      } else if (packed == killer1) {
+        score = KILLER_SCORE;
+      } else if (packed == killer2) {
+        score = KILLER_SCORE - 1;
+      } else if (packed == counter) {
+        score = COUNTER_SCORE;
+      } else {
+        score = this.history[historyIndex(packed)];
+      }
+      moves.setScore(i, score);
+    }
+  }
+
+  @Override
+  public void cutoff(final int move, final int ply, final int depth, final int previousMove, final int color) {
+    if (ply < MAX_PLY && this.killers[2 * ply] != move) {
+      this.killers[2 * ply + 1] = this.killers[2 * ply];
+      this.killers[2 * ply] = move;
+    }
+    if (previousMove != PackedMove.NONE) {
+      this.counters[counterIndex(previousMove, color)] = move;
+    }
+    int i = historyIndex(move);
+    this.history[i] += depth * depth;
+    if (this.history[i] >= HISTORY_LIMIT) {
+      for (int j = 0; j < this.history.length; j++) {
+        this.history[j] >>= 1;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,235 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.BoardGeometry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Transposition table in a memory mapped file. The results survive restarts,
+ * and several processes that map the same file share them. Entries are
+ * verified the same way as in memory, so processes need no locking between
+ * them. Keys come from the fixed seed of the Zobrist tables, so they mean the
+ * same in every process, but only for one board size and layout of blocked
+ * Squares. The file records the {@link BoardGeometry#getFingerprint()
+ * fingerprint} of its board and refuses to open for any other.
+ *
+ * <p>
+ * The file starts with a page holding a magic number, the number of buckets,
+ * the age of the latest search and the board fingerprint, followed by the
+ * buckets. An existing file
+ * keeps its size, whatever size is asked for. The header is only read and
+ * written under a lock on the file, so processes opening a new file together
+ * write it once, and every process ages entries from the same counter. File
+ * locks belong to the whole process, so open a file once per process.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class MappedTranspositionTable extends BufferTranspositionTable implements Closeable {
+
+  /** Marks a file as a transposition table, version 2. */
+  private static final long MAGIC = 0x42474c5454000002L;
+
+  /** The magic number without its version. */
+  private static final long MAGIC_MASK = 0xffffffffffff0000L;
+
+  /** Bytes before the first bucket. */
+  private static final int HEADER_BYTES = 4096;
+
+  /** Where the header keeps the number of buckets. */
+  private static final int BUCKETS_OFFSET = Long.BYTES;
+
+  /** Where the header keeps the age of the latest search. */
+  private static final int AGE_OFFSET = 2 * Long.BYTES;
+
+  /** Where the header keeps the fingerprint of the board. */
+  private static final int GEOMETRY_OFFSET = 3 * Long.BYTES;
+
+  /** The open file. */
+  private final FileChannel channel;
+
+  /** The header page. */
+  private final MappedByteBuffer header;
+
+  /**
+   * Open or create a MappedTranspositionTable.
+   *
+   * @param path
+   *          the file
+   * @param megabytes
+   *          size of a new table in megabytes, rounded down to a power of two
+   *          buckets
+   * @param geometry
+   *          geometry of the board searched
+   * @throws IOException
+   *           if the file can not be mapped, is not a transposition table or
+   *           was made for another board.
+   */
+  public MappedTranspositionTable(final Path path, final long megabytes, final BoardGeometry geometry)
+      throws IOException {
+    this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+        megabytes, geometry.getFingerprint());
+  }
+
+  /**
+   * Map an open file.
+   *
+   * @param fc
+   *          the file
+   * @param megabytes
+   *          size of a new table in megabytes
+   * @param fingerprint
+   *          fingerprint of the board
+   * @throws IOException
+   *           if the file can not be mapped, is not a transposition table or
+   *           was made for another board.
+   */
+  private MappedTranspositionTable(final FileChannel fc, final long megabytes, final long fingerprint)
+      throws IOException {
+    super(map(fc, megabytes, fingerprint));
+    this.channel = fc;
+    this.header = fc.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    this.header.order(ByteOrder.LITTLE_ENDIAN);
+    setAge((int) this.header.getLong(AGE_OFFSET));
+  }
+
+  /**
+   * Map the buckets of a file, writing the header first if the file is new. The
+   * header is checked and written, and a new file grown to its full size, under
+   * a lock on the header.
+   *
+   * @param fc
+   *          the file
+   * @param megabytes
+   *          size of a new table in megabytes
+   * @param fingerprint
+   *          fingerprint of the board
+   * @return the chunks.
+   * @throws IOException
+   *           if the file can not be mapped, is not a transposition table or
+   *           was made for another board.
+   */
+  private static ByteBuffer[] map(final FileChannel fc, final long megabytes, final long fingerprint)
+      throws IOException {
+    try {
+      long buckets;
+      FileLock lock = lockHeader(fc);
+      try {
+        MappedByteBuffer header = fc.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getLong(0) == MAGIC) {
+          buckets = header.getLong(BUCKETS_OFFSET);
+          if (Long.bitCount(buckets) != 1 || fc.size() < HEADER_BYTES + buckets * BUCKET_BYTES) {
+            throw new IOException("Transposition table file is damaged");
+          }
+          if (header.getLong(GEOMETRY_OFFSET) != fingerprint) {
+            throw new IOException("Transposition table file is for another board");
+          }
+        } else if (header.getLong(0) == 0) {
+          buckets = bucketsFor(megabytes);
+          fc.write(ByteBuffer.allocate(1), HEADER_BYTES + buckets * BUCKET_BYTES - 1);
+          header.putLong(BUCKETS_OFFSET, buckets);
+          header.putLong(GEOMETRY_OFFSET, fingerprint);
+          header.putLong(0, MAGIC);
+          header.force();
+        } else if ((header.getLong(0) & MAGIC_MASK) == (MAGIC & MAGIC_MASK)) {
+          throw new IOException("Transposition table file is from another version");
+        } else {
+          throw new IOException("Not a transposition table file");
+        }
+      } finally {
+        lock.release();
+      }
+
+      int chunkBuckets = chunkBucketsFor(buckets);
+      long chunkBytes = (long) chunkBuckets * BUCKET_BYTES;
+      ByteBuffer[] chunks = new ByteBuffer[(int) (buckets / chunkBuckets)];
+      for (int i = 0; i < chunks.length; i++) {
+        chunks[i] = fc.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * chunkBytes, chunkBytes)
+            .order(ByteOrder.LITTLE_ENDIAN);
+      }
+      return chunks;
+    } catch (IOException | RuntimeException e) {
+      fc.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Lock the header of a file.
+   *
+   * @param fc
+   *          the file
+   * @return the lock.
+   * @throws IOException
+   *           if the file can not be locked, including when another table in
+   *           this process holds the lock.
+   */
+  private static FileLock lockHeader(final FileChannel fc) throws IOException {
+    try {
+      return fc.lock(0, HEADER_BYTES, false);
+    } catch (OverlappingFileLockException e) {
+      throw new IOException("Transposition table file is locked elsewhere in this process", e);
+    }
+  }
+
+  /**
+   * Start a new search, taking the age from the file so that every process
+   * sharing it ages entries alike. The file's age moves on only if it is still
+   * the age seen. Threads sharing this table take turns, since the file lock
+   * belongs to the whole process. If the file can not be locked, the age only
+   * moves on in this process.
+   */
+  @Override
+  public synchronized int newSearch(final int seenAge) {
+    try {
+      FileLock lock = lockHeader(this.channel);
+      try {
+        int a = (int) this.header.getLong(AGE_OFFSET);
+        if (a == seenAge) {
+          a++;
+          this.header.putLong(AGE_OFFSET, a);
+        }
+        setAge(a);
+        return a;
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      return super.newSearch(seenAge);
+    }
+  }
+
+  /**
+   * Write changed entries to the file. The operating system does this anyway;
+   * call it to have the results on disk before, say, shutting down.
+   */
+  public void flush() {
+    for (ByteBuffer chunk : getChunks()) {
+      ((MappedByteBuffer) chunk).force();
+    }
+  }
+
+  /**
+   * Flush and close the file. The mapping itself is released when the table is
+   * garbage collected, so the table must not be used after this.
+   *
+   * @throws IOException
+   *           if the file can not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    this.channel.close();
+  }
+}
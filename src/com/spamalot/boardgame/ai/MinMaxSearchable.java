@@ -25,7 +25,9 @@ public interface MinMaxSearchable<T extends Move> {
 
   /**
    * An evaluation of the position from white's perspective. Positive numbers
-   * mean better for White, negative numbers mean better for Black.
+   * mean better for White, negative numbers mean better for Black. When the
+   * game is over only the sign is used: the search turns it into a
+   * {@link ProvenScore} win, loss or draw.
    * 
    * @param gameOver
    *          True if game is over and is being evaluated for that
@@ -55,10 +57,79 @@ public interface MinMaxSearchable<T extends Move> {
    */
   PieceColor getColorToMove();
 
+  /**
+   * Get the Zobrist key of the current position, including the side to move.
+   * Expected to be maintained incrementally as moves are made and taken back.
+   * 
+   * @return the key.
+   */
+  long getHashKey();
+
   /**
    * Get list of moves.
    * 
    * @return a list of moves.
    */
   List<T> getAvailableMoves();
+
+  /**
+   * Write the available moves into a caller owned buffer, which is already
+   * cleared. The default adds everything from {@link #getAvailableMoves()};
+   * games override this to generate moves without allocating a List.
+   * 
+   * @param buf
+   *          the buffer to fill
+   */
+  default void generateMoves(final MoveBuffer<T> buf) {
+    buf.addAll(getAvailableMoves());
+  }
+
+  /**
+   * Get a move that passes the turn to the other side without changing the
+   * board, which {@link #makeMove(Move)} and {@link #undoLastMove()} accept.
+   * It is used for null move pruning. The default returns null, meaning the
+   * game has no such move and null move pruning is skipped.
+   * 
+   * @return the PASS move, or null.
+   */
+  default T getPassMove() {
+    return null;
+  }
+
+  /**
+   * Check if the position is calm enough for {@link #evaluate(boolean)} to be
+   * trusted, for example because no big capture is possible. The quiescence
+   * stage of a search keeps going below its leaves while this is false. The
+   * default says every position is quiet.
+   * 
+   * @return true if the position is quiet.
+   */
+  default boolean isQuiet() {
+    return true;
+  }
+
+  /**
+   * Write the moves that could change the evaluation a lot, such as big
+   * captures, into a caller owned buffer, which is already cleared. Only these
+   * are searched by the quiescence stage. The default adds none.
+   * 
+   * @param buf
+   *          the buffer to fill
+   */
+  default void generateTacticalMoves(final MoveBuffer<T> buf) {
+    // No tactical moves.
+  }
+
+  /**
+   * Check if a move is one {@link #generateTacticalMoves(MoveBuffer)} would
+   * write. Futility pruning never skips these. The default says no move is
+   * tactical.
+   * 
+   * @param move
+   *          a move of this position
+   * @return true if the move is tactical.
+   */
+  default boolean isTacticalMove(final T move) {
+    return false;
+  }
 }
@@ -0,0 +1,225 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.BoardGeometry;
+import com.spamalot.boardgame.Move;
+import com.spamalot.boardgame.PackedMove;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Caller owned storage that move generators write into. A searcher keeps one
+ * MoveBuffer per ply and clears it at every node, so generating moves does not
+ * allocate a List per node. Each move has an int ordering score next to it,
+ * and once {@link #pack(BoardGeometry)} has run, its {@link PackedMove} too, so
+ * the search can compare and record moves without going back to the Move.
+ *
+ * @author gej
+ *
+ * @param <T>
+ *          Type of Move held
+ */
+public final class MoveBuffer<T extends Move> {
+
+  /** The moves. */
+  private Object[] moves;
+
+  /** Ordering score of each move. */
+  private int[] scores;
+
+  /** Each move as a {@link PackedMove}, or {@link PackedMove#NONE}. */
+  private int[] packed;
+
+  /** Number of moves in the buffer. */
+  private int size;
+
+  /**
+   * Construct an empty MoveBuffer.
+   *
+   * @param capacity
+   *          how many moves to make room for up front
+   */
+  public MoveBuffer(final int capacity) {
+    this.moves = new Object[Math.max(capacity, 1)];
+    this.scores = new int[this.moves.length];
+    this.packed = new int[this.moves.length];
+  }
+
+  /**
+   * Remove all moves. The storage is kept for reuse.
+   */
+  public void clear() {
+    Arrays.fill(this.moves, 0, this.size, null);
+    this.size = 0;
+  }
+
+  /**
+   * Get the number of moves.
+   *
+   * @return the size.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Check if there are no moves.
+   *
+   * @return true if the buffer is empty.
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Add a move.
+   *
+   * @param move
+   *          the move
+   */
+  public void add(final T move) {
+    if (this.size == this.moves.length) {
+      this.moves = Arrays.copyOf(this.moves, this.moves.length * 2);
+      this.scores = Arrays.copyOf(this.scores, this.moves.length);
+      this.packed = Arrays.copyOf(this.packed, this.moves.length);
+    }
+    this.scores[this.size] = 0;
+    this.packed[this.size] = PackedMove.NONE;
+    this.moves[this.size++] = move;
+  }
+
+  /**
+   * Add every move in a List.
+   *
+   * @param list
+   *          the moves
+   */
+  public void addAll(final List<T> list) {
+    for (T move : list) {
+      add(move);
+    }
+  }
+
+  /**
+   * Get a move.
+   *
+   * @param i
+   *          position in the buffer
+   * @return the move.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(final int i) {
+    return (T) this.moves[i];
+  }
+
+  /**
+   * Replace a move.
+   *
+   * @param i
+   *          position in the buffer
+   * @param move
+   *          the move
+   */
+  public void set(final int i, final T move) {
+    this.moves[i] = move;
+    this.packed[i] = PackedMove.NONE;
+  }
+
+  /**
+   * Pack every move, so that {@link #getPacked(int)} can be used.
+   *
+   * @param geometry
+   *          the geometry of the board
+   */
+  public void pack(final BoardGeometry geometry) {
+    for (int i = 0; i < this.size; i++) {
+      this.packed[i] = get(i).toPacked(geometry);
+    }
+  }
+
+  /**
+   * Get a move as a {@link PackedMove}.
+   *
+   * @param i
+   *          position in the buffer
+   * @return the packed move, or {@link PackedMove#NONE} if the move has not
+   *         been packed since it was added.
+   */
+  public int getPacked(final int i) {
+    return this.packed[i];
+  }
+
+  /**
+   * Swap two moves.
+   *
+   * @param i
+   *          position of one move
+   * @param j
+   *          position of the other move
+   */
+  public void swap(final int i, final int j) {
+    Object m = this.moves[i];
+    this.moves[i] = this.moves[j];
+    this.moves[j] = m;
+    int s = this.scores[i];
+    this.scores[i] = this.scores[j];
+    this.scores[j] = s;
+    int p = this.packed[i];
+    this.packed[i] = this.packed[j];
+    this.packed[j] = p;
+  }
+
+  /**
+   * Get the ordering score of a move.
+   *
+   * @param i
+   *          position in the buffer
+   * @return the score.
+   */
+  public int getScore(final int i) {
+    return this.scores[i];
+  }
+
+  /**
+   * Set the ordering score of a move.
+   *
+   * @param i
+   *          position in the buffer
+   * @param score
+   *          the score
+   */
+  public void setScore(final int i, final int score) {
+    this.scores[i] = score;
+  }
+
+  /**
+   * Move the highest scored move at or after a position to that position. The
+   * earliest of equal scores wins and the others keep their order, so calling
+   * this for each position in turn is a stable selection sort that stops
+   * paying once a cutoff happens.
+   *
+   * @param i
+   *          the position
+   * @return the move now at the position.
+   */
+  public T pickBest(final int i) {
+    int best = i;
+    for (int j = i + 1; j < this.size; j++) {
+      if (this.scores[j] > this.scores[best]) {
+        best = j;
+      }
+    }
+    if (best != i) {
+      Object m = this.moves[best];
+      int s = this.scores[best];
+      int p = this.packed[best];
+      System.arraycopy(this.moves, i, this.moves, i + 1, best - i);
+      System.arraycopy(this.scores, i, this.scores, i + 1, best - i);
+      System.arraycopy(this.packed, i, this.packed, i + 1, best - i);
+      this.moves[i] = m;
+      this.scores[i] = s;
+      this.packed[i] = p;
+    }
+    return get(i);
+  }
+}
@@ -0,0 +1,57 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.BoardGeometry;
+import com.spamalot.boardgame.Move;
+
+/**
+ * Scores the moves of a node so {@link NegaMax} can search the most promising
+ * ones first, and learns from the moves that caused cutoffs. Moves are
+ * identified by their {@link com.spamalot.boardgame.PackedMove PackedMove}.
+ *
+ * @author gej
+ *
+ */
+public interface MoveOrderer {
+
+  /**
+   * Start a new search on a board geometry.
+   *
+   * @param geometry
+   *          geometry of the board searched
+   */
+  void newSearch(BoardGeometry geometry);
+
+  /**
+   * Set the ordering score of every move in a buffer, higher first.
+   *
+   * @param moves
+   *          the moves of the node, already packed with
+   *          {@link MoveBuffer#pack(BoardGeometry)}
+   * @param ply
+   *          distance from the root
+   * @param firstMove
+   *          packed move to search first, from the principal variation or the
+   *          transposition table, or 0
+   * @param previousMove
+   *          packed move that led to the node, or 0 at the root
+   * @param color
+   *          side to move, 1 for White and -1 for Black
+   */
+  void scoreMoves(MoveBuffer<? extends Move> moves, int ply, int firstMove, int previousMove, int color);
+
+  /**
+   * Record a move that caused a beta cutoff.
+   *
+   * @param move
+   *          the packed move
+   * @param ply
+   *          distance from the root
+   * @param depth
+   *          depth remaining at the node
+   * @param previousMove
+   *          packed move that led to the node, or 0 at the root
+   * @param color
+   *          side to move, 1 for White and -1 for Black
+   */
+  void cutoff(int move, int ply, int depth, int previousMove, int color);
+}
@@ -1,10 +1,14 @@
 package com.spamalot.boardgame.ai;
 
+import com.spamalot.boardgame.BoardGeometry;
 import com.spamalot.boardgame.Game;
 import com.spamalot.boardgame.GameException;
 import com.spamalot.boardgame.Move;
+import com.spamalot.boardgame.PackedMove;
 import com.spamalot.boardgame.PieceColor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -72,8 +76,77 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
   /** How many nodes were looked at in the search. */
   private long nodeCount = 0;
 
-  // private ArrayList<S> currentLine = new ArrayList<>(100);
-  // private int currentLineDepth = 0;
+  /** Room for this many moves in each new MoveBuffer. */
+  private static final int MOVE_BUFFER_CAPACITY = 64;
+
+  /** Move storage for each ply below the root, grown as the search deepens. */
+  private MoveBuffer<S>[] moveBuffers = newMoveBuffers(0);
+
+  /** Cache of positions already searched, or null to search without one. */
+  private TranspositionTable transpositionTable;
+
+  /** Age of the transposition table when this last started a search. */
+  private int tableAge;
+
+  /** Deepest ply the principal variation is collected to. */
+  private static final int MAX_PLY = 128;
+
+  /**
+   * Triangular principal variation table of packed moves: row ply holds the
+   * best line found from that ply, starting at column ply.
+   */
+  private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+
+  /** Length of the line in each row of the PV table, as a column index. */
+  private final int[] pvLength = new int[MAX_PLY];
+
+  /**
+   * Principal variation of the latest aspiration pass, tried first by the next
+   * one. May come from an unfinished iteration.
+   */
+  private int[] previousPv = new int[0];
+
+  /** Principal variation of the last completed iteration. */
+  private int[] completedPv = new int[0];
+
+  /**
+   * Best root move of the latest pass whose score is exact, having beaten
+   * alpha without reaching beta, or null.
+   */
+  private S exactRootMove;
+
+  /** True while the search is following the previous principal variation. */
+  private boolean followPv;
+
+  /** Packed move being searched at each ply. */
+  private final int[] currentMoves = new int[MAX_PLY];
+
+  /** Orders the moves of interior nodes. */
+  private MoveOrderer moveOrderer = new HeuristicMoveOrderer();
+
+  /** Selective search settings. */
+  private SearchConfig searchConfig = new SearchConfig();
+
+  /** True while verifying a null move fail high, when null moves are off. */
+  private boolean verifyingNullMove;
+
+  /** What the quiescence stage did in the current search. */
+  private final QuiescenceStats quiescenceStats = new QuiescenceStats();
+
+  /** Limits of the current search. */
+  private SearchLimits limits = new SearchLimits();
+
+  /** Set once a limit is reached; every node then returns at once. */
+  private boolean stopped;
+
+  /** When the current search started, from System.nanoTime(). */
+  private long startNanos;
+
+  /** Node count when the current search started. */
+  private long startNodes;
+
+  /** Nodes left before the limits are checked again. */
+  private int nodesUntilCheck;
 
   /**
    * Construct a thinker.
@@ -82,9 +155,170 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
    *          Game to think about
    * @throws GameException
    *           if something goes wrong
+   * @throws IllegalArgumentException
+   *           if the board has more Squares than a {@link PackedMove} can
+   *           address
    */
   public NegaMax(final T game) throws GameException {
-    this.thisGame = (T) game.copyGame();
+    checkBoardSize(game);
+    this.thisGame = game.copyGame();
+  }
+
+  /**
+   * Think about a new position, keeping the transposition table, move ordering
+   * history and settings. Cheaper between moves of a game than a new NegaMax.
+   * 
+   * @param game
+   *          Game to think about
+   * @throws GameException
+   *           if something goes wrong
+   * @throws IllegalArgumentException
+   *           if the board has more Squares than a {@link PackedMove} can
+   *           address
+   */
+  public void setPosition(final T game) throws GameException {
+    checkBoardSize(game);
+    this.thisGame = game.copyGame();
+  }
+
+  /**
+   * Check that every Square of a game's board fits in a {@link PackedMove}.
+   * 
+   * @param game
+   *          the Game
+   */
+  private static void checkBoardSize(final Game game) {
+    int numSquares = game.getBoard().getGeometry().getNumSquares();
+    if (numSquares > PackedMove.MAX_SQUARES) {
+      throw new IllegalArgumentException(
+          "Board has " + numSquares + " Squares, more than the " + PackedMove.MAX_SQUARES + " NegaMax can search");
+    }
+  }
+
+  /**
+   * Get the transposition table.
+   * 
+   * @return the transposition table, or null if there is none.
+   */
+  public TranspositionTable getTranspositionTable() {
+    return this.transpositionTable;
+  }
+
+  /**
+   * Set the transposition table. A table can be shared by several NegaMax
+   * instances searching on different threads.
+   * 
+   * @param table
+   *          the transposition table, or null to search without one
+   */
+  public void setTranspositionTable(final TranspositionTable table) {
+    this.transpositionTable = table;
+    if (table != null) {
+      this.tableAge = table.getAge();
+    }
+  }
+
+  /**
+   * Get the move orderer.
+   * 
+   * @return the move orderer.
+   */
+  public MoveOrderer getMoveOrderer() {
+    return this.moveOrderer;
+  }
+
+  /**
+   * Set the move orderer used at interior nodes.
+   * 
+   * @param orderer
+   *          the move orderer
+   */
+  public void setMoveOrderer(final MoveOrderer orderer) {
+    this.moveOrderer = orderer;
+  }
+
+  /**
+   * Get the selective search settings.
+   * 
+   * @return the search config.
+   */
+  public SearchConfig getSearchConfig() {
+    return this.searchConfig;
+  }
+
+  /**
+   * Set the selective search settings.
+   * 
+   * @param config
+   *          the search config
+   */
+  public void setSearchConfig(final SearchConfig config) {
+    this.searchConfig = config;
+  }
+
+  /**
+   * Get what the quiescence stage did in the last search. Its nodes are not
+   * part of {@link #getNodeCount()}.
+   * 
+   * @return the statistics.
+   */
+  public QuiescenceStats getQuiescenceStats() {
+    return this.quiescenceStats;
+  }
+
+  /**
+   * Get the number of nodes looked at so far.
+   * 
+   * @return the node count.
+   */
+  public long getNodeCount() {
+    return this.nodeCount;
+  }
+
+  /**
+   * Get the principal variation of the last search as packed moves, the best
+   * move first. Moves can be turned back into objects or text with
+   * {@link PackedMove}.
+   * 
+   * @return a copy of the principal variation.
+   */
+  public int[] getPrincipalVariation() {
+    return this.completedPv.clone();
+  }
+
+  /**
+   * Get the principal variation of the last search as text.
+   * 
+   * @return the moves separated by spaces.
+   */
+  public String principalVariationToString() {
+    BoardGeometry geometry = this.thisGame.getBoard().getGeometry();
+    StringBuilder sb = new StringBuilder();
+    for (int packed : this.completedPv) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(PackedMove.toString(packed, geometry));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Search the position to a fixed depth with a full window, without iterative
+   * deepening or output.
+   * 
+   * @param depth
+   *          How deep to search
+   * @return the value of the position for the side to move.
+   */
+  public final int searchToDepth(final int depth) {
+    int color = this.thisGame.getColorToMove() == PieceColor.BLACK ? -1 : 1;
+    this.followPv = false;
+    this.currentMoves[0] = PackedMove.NONE;
+    this.moveOrderer.newSearch(this.thisGame.getBoard().getGeometry());
+    this.quiescenceStats.reset();
+    startLimits(new SearchLimits());
+    return negaMaxAlphaBeta(this.thisGame, depth, 1, -MAX_VAL, MAX_VAL, color);
   }
 
   /**
@@ -98,8 +332,30 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
     if (maxIteration < 1) {
       return null;
     }
-    // this.currentLine.ensureCapacity(maxIteration + 1);
+    SearchLimits depthOnly = new SearchLimits();
+    depthOnly.setMaxDepth(maxIteration);
+    return think(depthOnly).getBestMove();
+  }
+
+  /**
+   * Start thinking using iterative deepening until the search is proven or a
+   * limit is reached. An iteration stopped by a limit is thrown away, apart
+   * from the root moves it finished, which are returned as partial results.
+   * 
+   * @param searchLimits
+   *          when to stop
+   * @return what was found.
+   */
+  public final SearchResult<S> think(final SearchLimits searchLimits) {
+    startLimits(searchLimits);
     List<S> candidateMoves = this.thisGame.getAvailableMoves();
+    this.previousPv = new int[0];
+    this.completedPv = this.previousPv;
+    this.moveOrderer.newSearch(this.thisGame.getBoard().getGeometry());
+    this.quiescenceStats.reset();
+    if (this.transpositionTable != null) {
+      this.tableAge = this.transpositionTable.newSearch(this.tableAge);
+    }
 
     int alphaDiff = -this.initialDiff;
     int betaDiff = this.initialDiff;
@@ -107,12 +363,20 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
     int alpha = -1000;
     int beta = 1000;
 
-    S move = null;
+    S bestMove = null;
+    int bestScore = 0;
+    int completedDepth = 0;
+    List<S> partial = new ArrayList<>();
+    double instability = 0;
 
-    for (int i = 0; i < maxIteration; i++) {
-      Collections.sort(candidateMoves);
+    for (int i = 0; i < searchLimits.getMaxDepth(); i++) {
+      Collections.sort(candidateMoves, Collections.reverseOrder());
+      if (this.previousPv.length > 0) {
+        rootMoveToFront(candidateMoves, this.previousPv[0]);
+      }
 
       int pass = 0;
+      S move = null;
 
       // Whether the search fails high or low
       boolean failed = true;
@@ -124,7 +388,15 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
         System.out.println();
         System.out.println("    Iteration " + i + "." + pass + "  Window: alpha=" + alpha + " beta=" + beta);
 
-        move = negaMaxAlphaBetaRoot(candidateMoves, alpha, beta, i + 1);
+        this.followPv = true;
+        partial.clear();
+        move = negaMaxAlphaBetaRoot(candidateMoves, alpha, beta, i + 1, partial);
+        if (this.stopped) {
+          break;
+        }
+        if (move != null && this.pvLength[0] > 0) {
+          this.previousPv = Arrays.copyOf(this.pvTable[0], this.pvLength[0]);
+        }
 
         if (move == null) {
           // a null move means there is no legal move. This is not a search
@@ -133,13 +405,13 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
         } else {
           if (move.getEvaluation() >= beta) {
             System.out.println("    Failed High: " + move);
-            beta = move.getEvaluation() + betaDiff;
+            beta = ProvenScore.isWin(move.getEvaluation()) ? MAX_VAL : move.getEvaluation() + betaDiff;
             betaDiff = betaDiff * this.diffModifier;
             failed = true;
             pass++;
           } else if (move.getEvaluation() <= alpha) {
             System.out.println("    Failed Low: " + move);
-            alpha = move.getEvaluation() + alphaDiff;
+            alpha = ProvenScore.isLoss(move.getEvaluation()) ? -MAX_VAL : move.getEvaluation() + alphaDiff;
             alphaDiff = alphaDiff * this.diffModifier;
             failed = true;
             pass++;
@@ -153,11 +425,123 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
         }
       }
 
+      if (this.stopped) {
+        System.out.println("Search stopped in iteration " + i + "." + pass);
+        break;
+      }
+      partial.clear();
+      instability /= 2;
+      if (bestMove != null && move != bestMove) {
+        instability++;
+      }
+      bestMove = move;
+      bestScore = move == null ? 0 : move.getEvaluation();
+      completedDepth = i + 1;
+      this.completedPv = this.previousPv;
+
       System.out.println("Move found: Iteration " + i + "." + pass + " with Alpha=" + alpha + " Beta=" + beta);
       System.out.println(move);
+      System.out.println("PV: " + principalVariationToString());
+
+      if (move != null && ProvenScore.isProven(move.getEvaluation())
+          && ProvenScore.getDistance(move.getEvaluation()) <= i + 1) {
+        // Searching deeper can not change a result proven within this depth
+        System.out.println("Proven: " + ProvenScore.toString(move.getEvaluation()));
+        break;
+      }
+
+      // The next iteration usually takes longer than all before it, so do not
+      // start one past half the soft limit
+      long soft = searchLimits.getStretchedSoftTimeLimitMillis(instability);
+      if (soft >= 0 && 2 * (System.nanoTime() - this.startNanos) >= soft * 1000000) {
+        System.out.println("Soft time limit reached after iteration " + i);
+        break;
+      }
+    }
+
+    if (bestMove != null) {
+      // The unfinished iteration may have scored the move again
+      bestMove.setEvaluation(bestScore);
+    } else if (this.exactRootMove != null) {
+      // Nothing completed, but the unfinished pass proved this move better
+      // than the rest it searched, by an exact score
+      bestMove = this.exactRootMove;
+      bestScore = bestMove.getEvaluation();
+    } else if (!candidateMoves.isEmpty()) {
+      // Scores that are only bounds say nothing reliable, so take the best move
+      // of an earlier pass, or else the move ordered first
+      if (this.previousPv.length > 0) {
+        rootMoveToFront(candidateMoves, this.previousPv[0]);
+      }
+      bestMove = candidateMoves.get(0);
+    }
+    long elapsed = (System.nanoTime() - this.startNanos) / 1000000;
+    return new SearchResult<>(bestMove, bestScore, completedDepth, this.completedPv.clone(), searchedNodes(), elapsed,
+        this.stopped, partial);
+  }
+
+  /**
+   * Start counting against a set of limits.
+   * 
+   * @param searchLimits
+   *          the limits
+   */
+  private void startLimits(final SearchLimits searchLimits) {
+    this.limits = searchLimits;
+    this.stopped = false;
+    this.startNanos = System.nanoTime();
+    this.startNodes = this.nodeCount;
+    this.nodesUntilCheck = searchLimits.getCheckInterval();
+  }
+
+  /**
+   * Get the nodes looked at by the current search, quiescence nodes included.
+   * 
+   * @return the node count.
+   */
+  private long searchedNodes() {
+    return this.nodeCount - this.startNodes + this.quiescenceStats.getNodes();
+  }
 
+  /**
+   * Check whether the search must stop. The limits themselves are only looked
+   * at once every check interval calls.
+   * 
+   * @return true if the search must stop.
+   */
+  private boolean shouldStop() {
+    if (this.stopped) {
+      return true;
+    }
+    if (--this.nodesUntilCheck > 0) {
+      return false;
+    }
+    SearchLimits l = this.limits;
+    this.nodesUntilCheck = l.getCheckInterval();
+    if (l.isCancelled() || (l.getNodeLimit() >= 0 && searchedNodes() >= l.getNodeLimit())
+        || (l.getTimeLimitMillis() >= 0 && System.nanoTime() - this.startNanos >= l.getTimeLimitMillis() * 1000000)) {
+      this.stopped = true;
+    }
+    return this.stopped;
+  }
+
+  /**
+   * Move the root move matching a packed move to the front of the candidate
+   * moves, keeping the order of the others.
+   * 
+   * @param candidateMoves
+   *          the root moves
+   * @param packed
+   *          the packed move to look for
+   */
+  private void rootMoveToFront(final List<S> candidateMoves, final int packed) {
+    BoardGeometry geometry = this.thisGame.getBoard().getGeometry();
+    for (int i = 0; i < candidateMoves.size(); i++) {
+      if (candidateMoves.get(i).toPacked(geometry) == packed) {
+        candidateMoves.add(0, candidateMoves.remove(i));
+        return;
+      }
     }
-    return move;
   }
 
   // int Search(int alpha, int beta, int depth)
@@ -224,9 +608,13 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
    *          the beta
    * @param depth
    *          How deep to search
-   * @return the best move found.
+   * @param searched
+   *          where to add each root move once it is fully searched
+   * @return the best move found, or null if the search stopped or there is no
+   *         move.
    */
-  private S negaMaxAlphaBetaRoot(final List<S> candidateMoves, final int alpha, final int beta, final int depth) {
+  private S negaMaxAlphaBetaRoot(final List<S> candidateMoves, final int alpha, final int beta, final int depth,
+      final List<S> searched) {
     System.out.println("Searching to a depth of " + depth);
 
     int color = 1;
@@ -238,21 +626,36 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
 
     int bestValue = -MAX_VAL;
     S bestMove = null;
+    BoardGeometry geometry = this.thisGame.getBoard().getGeometry();
+    this.pvLength[0] = 0;
+    this.exactRootMove = null;
 
-    for (S move : candidateMoves) {
-      // System.out.println(move);
+    for (int i = 0; i < candidateMoves.size(); i++) {
+      S move = candidateMoves.get(i);
+      if (i > 0) {
+        this.followPv = false;
+      }
+      this.currentMoves[0] = move.toPacked(geometry);
       this.thisGame.makeMove(move);
-      // currentLine.set(this.currentLineDepth, move);
       this.nodeCount++;
-      int evaluation = -negaMaxAlphaBeta(this.thisGame, depth - 1, -beta, -newAlpha, -color);
-      move.setEvaluation(evaluation);
-
+      int evaluation = principalVariationSearch(this.thisGame, depth - 1, 0, 1, beta, newAlpha, -color, i == 0);
       this.thisGame.undoLastMove();
+      if (this.stopped) {
+        return null;
+      }
+      move.setEvaluation(evaluation);
+      searched.add(move);
 
       if (evaluation > bestValue) {
         bestValue = evaluation;
         bestMove = move;
-        // System.out.println(this.currentLineDepth);
+        if (evaluation > newAlpha) {
+          // A fail low score is only a bound, so its line is not a PV
+          updatePv(0, this.currentMoves[0]);
+          if (evaluation < beta) {
+            this.exactRootMove = move;
+          }
+        }
         System.out.println("New Best Move: " + move);
         System.out.println("Node Count to this point: " + this.nodeCount);
       }
@@ -287,6 +690,8 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
    *          Game to evaluate
    * @param depth
    *          depth to evaluate
+   * @param ply
+   *          distance from the root
    * @param alpha
    *          alph value
    * @param beta
@@ -295,39 +700,404 @@ public class NegaMax<T extends Game & MinMaxSearchable<S>, S extends Move> {
    *          color
    * @return an evaluation.
    */
-  private int negaMaxAlphaBeta(final T game2, final int depth, final int alpha, final int beta, final int color) {
+  private int negaMaxAlphaBeta(final T game2, final int depth, final int ply, final int alpha, final int beta,
+      final int color) {
+    if (ply < MAX_PLY) {
+      this.pvLength[ply] = ply;
+    }
+    if (shouldStop()) {
+      return 0;
+    }
     boolean gameOver = game2.isOver();
-    if (depth == 0 || gameOver) {
-      return color * game2.evaluate(gameOver);
+    if (gameOver) {
+      return terminalScore(game2, ply, color);
+    }
+    if (depth == 0) {
+      if (this.searchConfig.isQuiescence()) {
+        return quiesce(game2, 0, ply, alpha, beta, color);
+      }
+      return color * game2.evaluate(false);
     }
-    // this.currentLineDepth++;
 
-    List<S> childMoves = game2.getAvailableMoves();
-    Collections.sort(childMoves);
-    // if (childMoves.size() == 0) {
-    // childMoves.add((S) new Move(Move.Type.PASS));
-    // }
+    // Nothing here can do better than winning at the next ply or worse than
+    // losing now
+    int newAlpha = Math.max(alpha, ProvenScore.loss(ply));
+    int newBeta = Math.min(beta, ProvenScore.win(ply + 1));
+    if (newAlpha >= newBeta) {
+      return newAlpha;
+    }
 
+    TranspositionTable tt = this.transpositionTable;
+    long key = 0;
+    int hashMove = PackedMove.NONE;
+    if (tt != null) {
+      key = game2.getHashKey();
+      long entry = tt.probe(key);
+      if (entry != TranspositionEntry.MISS) {
+        hashMove = TranspositionEntry.getMove(entry);
+        // No cutoffs in PV nodes, so the principal variation is not cut short
+        if (TranspositionEntry.getDepth(entry) >= depth && beta - alpha <= 1) {
+          int score = ProvenScore.fromTable(TranspositionEntry.getScore(entry), ply);
+          switch (TranspositionEntry.getBound(entry)) {
+            case TranspositionEntry.EXACT:
+              return score;
+            case TranspositionEntry.LOWER:
+              newAlpha = Math.max(newAlpha, score);
+              break;
+            default:
+              newBeta = Math.min(newBeta, score);
+              break;
+          }
+          if (newAlpha >= newBeta) {
+            return score;
+          }
+        }
+      }
+    }
+
+    SearchConfig config = this.searchConfig;
+    boolean nullWindow = newBeta - newAlpha <= 1;
+    int previousMove = ply <= MAX_PLY ? this.currentMoves[ply - 1] : PackedMove.NONE;
+
+    if (nullWindow && config.isNullMovePruning() && !this.verifyingNullMove && depth >= config.getNullMoveMinDepth()
+        && previousMove != PackedMove.PASS) {
+      S pass = game2.getPassMove();
+      if (pass != null) {
+        int reducedDepth = Math.max(0, depth - 1 - config.getNullMoveReduction());
+        if (ply < MAX_PLY) {
+          this.currentMoves[ply] = PackedMove.PASS;
+        }
+        game2.makeMove(pass);
+        this.nodeCount++;
+        int nullValue = -negaMaxAlphaBeta(game2, reducedDepth, ply + 1, -newBeta, -newBeta + 1, -color);
+        game2.undoLastMove();
+        if (this.stopped) {
+          return 0;
+        }
+        if (nullValue >= newBeta) {
+          if (!config.isNullMoveVerification()) {
+            // A win found after passing is not proven for this position
+            return ProvenScore.isProven(nullValue) ? newBeta : nullValue;
+          }
+          this.verifyingNullMove = true;
+          int verified = negaMaxAlphaBeta(game2, depth - config.getNullMoveReduction(), ply, newAlpha, newBeta, color);
+          this.verifyingNullMove = false;
+          if (this.stopped) {
+            return 0;
+          }
+          if (verified >= newBeta) {
+            return verified;
+          }
+        }
+      }
+    }
+
+    ProbCutModel probCut = config.getProbCutModel();
+    int empty = nullWindow && probCut != null ? game2.getEmptyCount() : 0;
+    if (nullWindow && probCut != null && probCut.covers(depth, empty)) {
+      int shallow = probCut.getShallowDepth(depth);
+      double threshold = config.getProbCutThreshold();
+      int high = probCut.upperCut(depth, empty, newBeta, threshold);
+      if (high < MAX_VAL && negaMaxAlphaBeta(game2, shallow, ply, high - 1, high, color) >= high) {
+        return this.stopped ? 0 : newBeta;
+      }
+      int low = probCut.lowerCut(depth, empty, newAlpha, threshold);
+      if (low > -MAX_VAL && negaMaxAlphaBeta(game2, shallow, ply, low, low + 1, color) <= low) {
+        return this.stopped ? 0 : newAlpha;
+      }
+      if (this.stopped) {
+        return 0;
+      }
+    }
+
+    boolean futile = false;
+    int futilityValue = -MAX_VAL;
+    if (nullWindow && config.isFutilityPruning() && depth <= config.getFutilityMaxDepth()) {
+      futilityValue = color * game2.evaluate(false) + config.getFutilityMargin() * depth;
+      futile = futilityValue <= newAlpha;
+    }
+
+    MoveBuffer<S> childMoves = moveBufferAt(ply);
+    childMoves.clear();
+    game2.generateMoves(childMoves);
+    if (childMoves.size() == 0) {
+      // The game is not over, so the side to move passes, or the position is
+      // scored as it stands when the game has no PASS move
+      S pass = game2.getPassMove();
+      if (pass == null) {
+        return color * game2.evaluate(false);
+      }
+      childMoves.add(pass);
+      futile = false;
+    }
+    childMoves.pack(game2.getBoard().getGeometry());
+    int pvMove = PackedMove.NONE;
+    if (this.followPv && ply < this.previousPv.length) {
+      pvMove = this.previousPv[ply];
+    }
+    this.moveOrderer.scoreMoves(childMoves, ply, pvMove == PackedMove.NONE ? hashMove : pvMove, previousMove,
+        color);
+
+    int alphaOrig = newAlpha;
     int bestValue = -MAX_VAL;
-    int newAlpha = alpha;
-    for (S move : childMoves) {
+    int bestMove = PackedMove.NONE;
+    boolean pruned = false;
+    for (int i = 0; i < childMoves.size(); i++) {
+      S move = childMoves.pickBest(i);
+      if (futile && i > 0 && !game2.isTacticalMove(move)) {
+        pruned = true;
+        continue;
+      }
+      int packed = childMoves.getPacked(i);
+      if (i > 0 || packed != pvMove) {
+        this.followPv = false;
+      }
+      if (ply < MAX_PLY) {
+        this.currentMoves[ply] = packed;
+      }
       game2.makeMove(move);
       this.nodeCount++;
-      int evaluation = -negaMaxAlphaBeta(game2, depth - 1, -beta, -newAlpha, -color);
+      int reduction = 0;
+      if (config.isLateMoveReductions() && depth >= config.getLmrMinDepth() && i >= config.getLmrFullDepthMoves()) {
+        reduction = i >= 2 * config.getLmrFullDepthMoves() && depth > config.getLmrMinDepth() + 1 ? 2 : 1;
+      }
+      int evaluation = principalVariationSearch(game2, depth - 1, reduction, ply + 1, newBeta, newAlpha, -color,
+          i == 0);
       game2.undoLastMove();
+      if (this.stopped) {
+        return 0;
+      }
 
-      // bestValue = Math.max(bestValue, evaluation);
       if (evaluation > bestValue) {
         bestValue = evaluation;
-        // System.out.println(currentLineDepth);
-        // currentLine.set(currentLineDepth, move);
+        bestMove = packed;
+      }
+      if (evaluation > newAlpha) {
+        newAlpha = evaluation;
+        updatePv(ply, packed);
+      }
+      if (newAlpha >= newBeta) {
+        this.moveOrderer.cutoff(packed, ply, depth, previousMove, color);
+        break;
       }
+    }
+    if (pruned && bestValue < futilityValue) {
+      // A pruned move might have been as good as the margin allows, so the
+      // searched moves alone, maybe a proven loss, do not bound the node
+      bestValue = futilityValue;
+      bestMove = PackedMove.NONE;
+    }
+
+    if (tt != null) {
+      int bound = TranspositionEntry.EXACT;
+      if (bestValue <= alphaOrig) {
+        bound = TranspositionEntry.UPPER;
+      } else if (bestValue >= newBeta) {
+        bound = TranspositionEntry.LOWER;
+      }
+      int packed = bound == TranspositionEntry.UPPER ? PackedMove.NONE : bestMove;
+      tt.store(key, depth, bound, ProvenScore.toTable(bestValue, ply), packed);
+    }
+    return bestValue;
+  }
+
+  /**
+   * Search the tactical moves below a leaf until the position is quiet. The
+   * side to move can always stand pat, taking the static evaluation instead of
+   * making a move.
+   * 
+   * @param game2
+   *          Game to evaluate
+   * @param qDepth
+   *          plies below the leaf
+   * @param ply
+   *          distance from the root
+   * @param alpha
+   *          alpha value
+   * @param beta
+   *          beta value
+   * @param color
+   *          color
+   * @return an evaluation.
+   */
+  private int quiesce(final T game2, final int qDepth, final int ply, final int alpha, final int beta,
+      final int color) {
+    if (shouldStop()) {
+      return 0;
+    }
+    QuiescenceStats stats = this.quiescenceStats;
+    stats.countNode(qDepth);
+    if (game2.isOver()) {
+      return terminalScore(game2, ply, color);
+    }
+    int standPat = color * game2.evaluate(false);
+    if (game2.isQuiet()) {
+      return standPat;
+    }
+    if (standPat >= beta) {
+      stats.countStandPatCutoff();
+      return standPat;
+    }
+    SearchConfig config = this.searchConfig;
+    if (standPat + config.getDeltaMargin() <= alpha) {
+      stats.countDeltaPrune();
+      return standPat;
+    }
+    if (qDepth >= config.getQuiescenceMaxDepth() || stats.getNodes() > config.getQuiescenceNodeBudget()) {
+      stats.countBudgetStop();
+      return standPat;
+    }
+
+    MoveBuffer<S> tacticalMoves = moveBufferAt(ply);
+    tacticalMoves.clear();
+    game2.generateTacticalMoves(tacticalMoves);
+    tacticalMoves.pack(game2.getBoard().getGeometry());
+    this.moveOrderer.scoreMoves(tacticalMoves, ply, PackedMove.NONE, PackedMove.NONE, color);
+
+    int bestValue = standPat;
+    int newAlpha = Math.max(alpha, standPat);
+    for (int i = 0; i < tacticalMoves.size(); i++) {
+      S move = tacticalMoves.pickBest(i);
+      game2.makeMove(move);
+      int evaluation = -quiesce(game2, qDepth + 1, ply + 1, -beta, -newAlpha, -color);
+      game2.undoLastMove();
+      if (this.stopped) {
+        return 0;
+      }
+
+      bestValue = Math.max(bestValue, evaluation);
       newAlpha = Math.max(newAlpha, evaluation);
       if (newAlpha >= beta) {
         break;
       }
     }
-    // this.currentLineDepth--;
     return bestValue;
   }
+
+  /**
+   * Score a finished game as a proven win or loss at this ply, or a draw.
+   * 
+   * @param game2
+   *          Game that is over
+   * @param ply
+   *          distance from the root
+   * @param color
+   *          color
+   * @return the score for the side to move.
+   */
+  private static <X extends MinMaxSearchable<?>> int terminalScore(final X game2, final int ply, final int color) {
+    int result = color * game2.evaluate(true);
+    if (result > 0) {
+      return ProvenScore.win(ply);
+    }
+    if (result < 0) {
+      return ProvenScore.loss(ply);
+    }
+    return 0;
+  }
+
+  /**
+   * Search a child with Principal Variation Search. The first child gets the
+   * full window. The others are first searched with a null window just above
+   * alpha, which is cheap and proves them no better than the first; one that
+   * fails high is searched again with the full window. A reduced child that
+   * fails high is searched again to full depth before that. Scores are from
+   * the parent's point of view.
+   * 
+   * @param game2
+   *          Game with the child move made
+   * @param depth
+   *          depth to search the child to
+   * @param reduction
+   *          how much shallower to search the null window first
+   * @param ply
+   *          distance of the child from the root
+   * @param beta
+   *          beta value of the parent
+   * @param alpha
+   *          alpha value of the parent
+   * @param color
+   *          color of the child
+   * @param first
+   *          true for the first child
+   * @return the evaluation of the child.
+   */
+  private int principalVariationSearch(final T game2, final int depth, final int reduction, final int ply,
+      final int beta, final int alpha, final int color, final boolean first) {
+    if (first) {
+      return -negaMaxAlphaBeta(game2, depth, ply, -beta, -alpha, color);
+    }
+    int evaluation = alpha + 1;
+    if (reduction > 0) {
+      evaluation = -negaMaxAlphaBeta(game2, Math.max(0, depth - reduction), ply, -alpha - 1, -alpha, color);
+    }
+    if (evaluation > alpha) {
+      evaluation = -negaMaxAlphaBeta(game2, depth, ply, -alpha - 1, -alpha, color);
+    }
+    if (beta - alpha <= 1) {
+      return evaluation;
+    }
+    if (evaluation > alpha && evaluation < beta) {
+      evaluation = -negaMaxAlphaBeta(game2, depth, ply, -beta, -alpha, color);
+    }
+    return evaluation;
+  }
+
+  /**
+   * Set the principal variation of a ply to a move followed by the line found
+   * at the next ply.
+   * 
+   * @param ply
+   *          distance from the root
+   * @param packed
+   *          the packed move
+   */
+  private void updatePv(final int ply, final int packed) {
+    if (ply >= MAX_PLY) {
+      return;
+    }
+    int[] row = this.pvTable[ply];
+    row[ply] = packed;
+    int length = ply + 1;
+    if (ply + 1 < MAX_PLY) {
+      int[] next = this.pvTable[ply + 1];
+      for (int i = ply + 1; i < this.pvLength[ply + 1]; i++) {
+        row[i] = next[i];
+      }
+      length = Math.max(length, this.pvLength[ply + 1]);
+    }
+    this.pvLength[ply] = length;
+  }
+
+  /**
+   * Get the MoveBuffer of a ply, creating it the first time the search gets
+   * that deep.
+   * 
+   * @param ply
+   *          distance from the root
+   * @return the MoveBuffer.
+   */
+  private MoveBuffer<S> moveBufferAt(final int ply) {
+    if (ply >= this.moveBuffers.length) {
+      MoveBuffer<S>[] grown = newMoveBuffers(ply + 1);
+      System.arraycopy(this.moveBuffers, 0, grown, 0, this.moveBuffers.length);
+      for (int i = this.moveBuffers.length; i < grown.length; i++) {
+        grown[i] = new MoveBuffer<>(MOVE_BUFFER_CAPACITY);
+      }
+      this.moveBuffers = grown;
+    }
+    return this.moveBuffers[ply];
+  }
+
+  /**
+   * Make an array of MoveBuffers.
+   * 
+   * @param length
+   *          length of the array
+   * @return the array, with no MoveBuffers in it yet.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <X extends Move> MoveBuffer<X>[] newMoveBuffers(final int length) {
+    return new MoveBuffer[length];
+  }
 }
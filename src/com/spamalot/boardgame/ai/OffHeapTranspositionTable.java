@@ -0,0 +1,46 @@
+package com.spamalot.boardgame.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Transposition table in direct memory, for tables of many gigabytes. Nothing
+ * in it is scanned by the garbage collector and it has no object headers. The
+ * memory is freed when the table is garbage collected.
+ *
+ * @author gej
+ *
+ */
+public final class OffHeapTranspositionTable extends BufferTranspositionTable {
+
+  /**
+   * Construct an OffHeapTranspositionTable using at most the given memory. The
+   * number of buckets is rounded down to a power of two.
+   *
+   * @param megabytes
+   *          size of the table in megabytes, 1024 per gigabyte
+   */
+  public OffHeapTranspositionTable(final long megabytes) {
+    super(allocate(bucketsFor(megabytes)));
+  }
+
+  /**
+   * Allocate cache line aligned chunks of direct memory.
+   *
+   * @param buckets
+   *          number of buckets in the table
+   * @return the chunks.
+   */
+  private static ByteBuffer[] allocate(final long buckets) {
+    int chunkBuckets = chunkBucketsFor(buckets);
+    int chunkBytes = chunkBuckets * BUCKET_BYTES;
+    ByteBuffer[] chunks = new ByteBuffer[(int) (buckets / chunkBuckets)];
+    for (int i = 0; i < chunks.length; i++) {
+      ByteBuffer raw = ByteBuffer.allocateDirect(chunkBytes + BUCKET_BYTES);
+      ByteBuffer aligned = raw.alignedSlice(BUCKET_BYTES);
+      aligned.limit(chunkBytes);
+      chunks[i] = aligned.slice().order(ByteOrder.nativeOrder());
+    }
+    return chunks;
+  }
+}
@@ -0,0 +1,179 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.Game;
+import com.spamalot.boardgame.GameException;
+import com.spamalot.boardgame.Move;
+
+import java.util.List;
+
+/**
+ * Fits a {@link ProbCutModel} offline. Every position of a set is searched to
+ * each deep depth and to the matching shallow depth, with no selective search
+ * and no transposition table, and a least squares line is fitted through the
+ * pairs of values of each depth and phase. Positions that are over, and pairs
+ * where either search proved a win or loss, are left out, since those values
+ * are not evaluations.
+ *
+ * @author gej
+ *
+ * @param <T>
+ *          Type of game to search
+ * @param <S>
+ *          Type of Move to use in Search
+ */
+public final class ProbCutCalibrator<T extends Game & MinMaxSearchable<S>, S extends Move> {
+
+  /** Fewest pairs a fit is made from. */
+  private static final int MIN_SAMPLES = 8;
+
+  /** How much shallower the predicting search is than the deep one. */
+  private final int reduction;
+
+  /** Number of empty Squares in each phase. */
+  private final int phaseWidth;
+
+  /**
+   * Construct a ProbCutCalibrator.
+   *
+   * @param depthReduction
+   *          how much shallower the predicting search is than the deep one
+   * @param width
+   *          number of empty Squares in each phase
+   */
+  public ProbCutCalibrator(final int depthReduction, final int width) {
+    this.reduction = depthReduction;
+    this.phaseWidth = width;
+  }
+
+  /**
+   * Run the paired searches and fit the model. Depths and phases with fewer
+   * than {@value #MIN_SAMPLES} pairs, or with a fit that does not rise, are
+   * left without a fit.
+   *
+   * @param positions
+   *          the positions, which are not changed
+   * @param minDepth
+   *          shallowest deep depth to fit
+   * @param maxDepth
+   *          deepest deep depth to fit
+   * @return the model.
+   * @throws GameException
+   *           if a position can not be copied.
+   */
+  public ProbCutModel calibrate(final List<T> positions, final int minDepth, final int maxDepth)
+      throws GameException {
+    int maxEmpty = 0;
+    for (T position : positions) {
+      maxEmpty = Math.max(maxEmpty, position.getEmptyCount());
+    }
+    ProbCutModel model = new ProbCutModel(this.reduction, this.phaseWidth, maxDepth, maxEmpty);
+    Fit[][] fits = new Fit[maxDepth + 1][model.getNumPhases()];
+
+    for (T position : positions) {
+      if (position.isOver()) {
+        continue;
+      }
+      int phase = model.getPhase(position.getEmptyCount());
+      NegaMax<T, S> searcher = new NegaMax<>(position);
+      for (int depth = Math.max(minDepth, this.reduction); depth <= maxDepth; depth++) {
+        int shallow = searcher.searchToDepth(model.getShallowDepth(depth));
+        int deep = searcher.searchToDepth(depth);
+        if (ProvenScore.isProven(shallow) || ProvenScore.isProven(deep)) {
+          continue;
+        }
+        if (fits[depth][phase] == null) {
+          fits[depth][phase] = new Fit();
+        }
+        fits[depth][phase].add(shallow, deep);
+      }
+    }
+
+    for (int depth = 0; depth <= maxDepth; depth++) {
+      for (int phase = 0; phase < model.getNumPhases(); phase++) {
+        Fit fit = fits[depth][phase];
+        if (fit != null && fit.count >= MIN_SAMPLES && fit.getSlope() > 0) {
+          model.set(depth, phase, fit.getSlope(), fit.getIntercept(), fit.getSigma());
+        }
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Sums for a least squares line.
+   *
+   * @author gej
+   *
+   */
+  private static final class Fit {
+    /** Number of pairs. */
+    private int count;
+
+    /** Sum of x. */
+    private double sumX;
+
+    /** Sum of y. */
+    private double sumY;
+
+    /** Sum of x squared. */
+    private double sumXX;
+
+    /** Sum of x times y. */
+    private double sumXY;
+
+    /** Sum of y squared. */
+    private double sumYY;
+
+    /**
+     * Add a pair.
+     *
+     * @param x
+     *          the shallow value
+     * @param y
+     *          the deep value
+     */
+    void add(final double x, final double y) {
+      this.count++;
+      this.sumX += x;
+      this.sumY += y;
+      this.sumXX += x * x;
+      this.sumXY += x * y;
+      this.sumYY += y * y;
+    }
+
+    /**
+     * Get the slope of the line. A set with no spread in x gets slope 1.
+     *
+     * @return the slope.
+     */
+    double getSlope() {
+      double varX = this.count * this.sumXX - this.sumX * this.sumX;
+      if (varX == 0) {
+        return 1;
+      }
+      return (this.count * this.sumXY - this.sumX * this.sumY) / varX;
+    }
+
+    /**
+     * Get the intercept of the line.
+     *
+     * @return the intercept.
+     */
+    double getIntercept() {
+      return (this.sumY - getSlope() * this.sumX) / this.count;
+    }
+
+    /**
+     * Get the standard deviation of the error of the line.
+     *
+     * @return the standard deviation.
+     */
+    double getSigma() {
+      double a = getSlope();
+      double b = getIntercept();
+      double sse = this.sumYY - 2 * a * this.sumXY - 2 * b * this.sumY + a * a * this.sumXX + 2 * a * b * this.sumX
+          + this.count * b * b;
+      return Math.sqrt(Math.max(0, sse) / Math.max(1, this.count - 2));
+    }
+  }
+}
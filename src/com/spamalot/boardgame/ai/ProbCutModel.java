@@ -0,0 +1,208 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Linear model of how a deep search value follows from a shallow one, used for
+ * ProbCut. For each deep depth and game phase it holds the fit
+ * {@code deep = slope * shallow + intercept} and the standard deviation of the
+ * error of that fit. The phase is the number of empty Squares divided by the
+ * phase width. The shallow depth is the deep depth less a fixed reduction.
+ *
+ * <p>
+ * Models come from a {@link ProbCutCalibrator}, or from
+ * {@link #set(int, int, double, double, double)} with values it printed
+ * earlier.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class ProbCutModel {
+
+  /** How much shallower the predicting search is than the deep one. */
+  private final int reduction;
+
+  /** Number of empty Squares in each phase. */
+  private final int phaseWidth;
+
+  /** Slope of each fit, by depth and phase. */
+  private final double[][] slope;
+
+  /** Intercept of each fit, by depth and phase. */
+  private final double[][] intercept;
+
+  /** Standard deviation of the error of each fit, by depth and phase. */
+  private final double[][] sigma;
+
+  /** Whether there is a fit, by depth and phase. */
+  private final boolean[][] fitted;
+
+  /**
+   * Construct a ProbCutModel with no fits.
+   *
+   * @param depthReduction
+   *          how much shallower the predicting search is than the deep one
+   * @param width
+   *          number of empty Squares in each phase
+   * @param maxDepth
+   *          deepest depth that can have a fit
+   * @param maxEmpty
+   *          largest number of empty Squares
+   */
+  public ProbCutModel(final int depthReduction, final int width, final int maxDepth, final int maxEmpty) {
+    if (depthReduction < 1 || width < 1) {
+      throw new IllegalArgumentException("Reduction and phase width must be positive");
+    }
+    this.reduction = depthReduction;
+    this.phaseWidth = width;
+    int phases = maxEmpty / width + 1;
+    this.slope = new double[maxDepth + 1][phases];
+    this.intercept = new double[maxDepth + 1][phases];
+    this.sigma = new double[maxDepth + 1][phases];
+    this.fitted = new boolean[maxDepth + 1][phases];
+  }
+
+  /**
+   * Get the phase of a position.
+   *
+   * @param empty
+   *          number of empty Squares
+   * @return the phase.
+   */
+  public int getPhase(final int empty) {
+    return empty / this.phaseWidth;
+  }
+
+  /**
+   * Get the number of phases.
+   *
+   * @return the number of phases.
+   */
+  public int getNumPhases() {
+    return this.fitted[0].length;
+  }
+
+  /**
+   * Get the deepest depth that can have a fit.
+   *
+   * @return the depth.
+   */
+  public int getMaxDepth() {
+    return this.fitted.length - 1;
+  }
+
+  /**
+   * Get the depth of the predicting search for a deep search.
+   *
+   * @param depth
+   *          depth of the deep search
+   * @return the shallow depth.
+   */
+  public int getShallowDepth(final int depth) {
+    return depth - this.reduction;
+  }
+
+  /**
+   * Set the fit of a depth and phase.
+   *
+   * @param depth
+   *          depth of the deep search
+   * @param phase
+   *          the phase
+   * @param a
+   *          slope
+   * @param b
+   *          intercept
+   * @param s
+   *          standard deviation of the error
+   */
+  public void set(final int depth, final int phase, final double a, final double b, final double s) {
+    if (a <= 0) {
+      throw new IllegalArgumentException("Slope must be positive");
+    }
+    this.slope[depth][phase] = a;
+    this.intercept[depth][phase] = b;
+    this.sigma[depth][phase] = s;
+    this.fitted[depth][phase] = true;
+  }
+
+  /**
+   * Check if there is a fit for a search.
+   *
+   * @param depth
+   *          depth of the deep search
+   * @param empty
+   *          number of empty Squares
+   * @return true if ProbCut can be tried.
+   */
+  public boolean covers(final int depth, final int empty) {
+    int phase = getPhase(empty);
+    return depth < this.fitted.length && getShallowDepth(depth) >= 0 && phase < this.fitted[depth].length
+        && this.fitted[depth][phase];
+  }
+
+  /**
+   * Get the shallow value at or above which the deep search is predicted to be
+   * at least beta.
+   *
+   * @param depth
+   *          depth of the deep search
+   * @param empty
+   *          number of empty Squares
+   * @param beta
+   *          beta of the deep search
+   * @param threshold
+   *          number of standard deviations of confidence
+   * @return the shallow bound.
+   */
+  public int upperCut(final int depth, final int empty, final int beta, final double threshold) {
+    int p = getPhase(empty);
+    return (int) Math.ceil((beta + threshold * this.sigma[depth][p] - this.intercept[depth][p]) / this.slope[depth][p]);
+  }
+
+  /**
+   * Get the shallow value at or below which the deep search is predicted to be
+   * at most alpha.
+   *
+   * @param depth
+   *          depth of the deep search
+   * @param empty
+   *          number of empty Squares
+   * @param alpha
+   *          alpha of the deep search
+   * @param threshold
+   *          number of standard deviations of confidence
+   * @return the shallow bound.
+   */
+  public int lowerCut(final int depth, final int empty, final int alpha, final double threshold) {
+    int p = getPhase(empty);
+    return (int) Math
+        .floor((alpha - threshold * this.sigma[depth][p] - this.intercept[depth][p]) / this.slope[depth][p]);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("ProbCutModel [reduction=");
+    sb.append(this.reduction);
+    sb.append(", phaseWidth=");
+    sb.append(this.phaseWidth);
+    sb.append("]");
+    for (int d = 0; d < this.fitted.length; d++) {
+      for (int p = 0; p < this.fitted[d].length; p++) {
+        if (this.fitted[d][p]) {
+          sb.append("\n  depth=");
+          sb.append(d);
+          sb.append(" phase=");
+          sb.append(p);
+          sb.append(" slope=");
+          sb.append(this.slope[d][p]);
+          sb.append(" intercept=");
+          sb.append(this.intercept[d][p]);
+          sb.append(" sigma=");
+          sb.append(this.sigma[d][p]);
+        }
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,159 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Scores of positions whose result is proven by the search: a win or loss a
+ * known number of plies from the root. A win in n plies scores
+ * {@link #WIN} - n and a loss in n plies -({@link #WIN} - n), so negating a
+ * score gives the opponent's view and nearer wins score higher. Both lie well
+ * outside the range of {@link MinMaxSearchable#evaluate(boolean)} and inside
+ * the range of a {@link TranspositionEntry}.
+ *
+ * <p>
+ * A transposition table must hold the distance from the stored position, not
+ * from the root, since the same position is met at different plies. Use
+ * {@link #toTable(int, int)} and {@link #fromTable(int, int)} for that.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class ProvenScore {
+
+  /** Score of a win at the root. */
+  public static final int WIN = 900000;
+
+  /** Most plies a proven score can be from the root. */
+  public static final int MAX_DISTANCE = 10000;
+
+  /** Scores above this are proven wins. */
+  private static final int WIN_THRESHOLD = WIN - MAX_DISTANCE;
+
+  /**
+   * Utility class.
+   */
+  private ProvenScore() {
+  }
+
+  /**
+   * Get the score of a win some plies from the root.
+   *
+   * @param ply
+   *          distance from the root
+   * @return the score.
+   */
+  public static int win(final int ply) {
+    return WIN - ply;
+  }
+
+  /**
+   * Get the score of a loss some plies from the root.
+   *
+   * @param ply
+   *          distance from the root
+   * @return the score.
+   */
+  public static int loss(final int ply) {
+    return -WIN + ply;
+  }
+
+  /**
+   * Check if a score is a proven win.
+   *
+   * @param score
+   *          the score
+   * @return true if the score is a win.
+   */
+  public static boolean isWin(final int score) {
+    return score > WIN_THRESHOLD;
+  }
+
+  /**
+   * Check if a score is a proven loss.
+   *
+   * @param score
+   *          the score
+   * @return true if the score is a loss.
+   */
+  public static boolean isLoss(final int score) {
+    return score < -WIN_THRESHOLD;
+  }
+
+  /**
+   * Check if a score is a proven win or loss.
+   *
+   * @param score
+   *          the score
+   * @return true if the score is proven.
+   */
+  public static boolean isProven(final int score) {
+    return isWin(score) || isLoss(score);
+  }
+
+  /**
+   * Get the number of plies to the end of a proven score.
+   *
+   * @param score
+   *          a proven score
+   * @return the distance.
+   */
+  public static int getDistance(final int score) {
+    return WIN - Math.abs(score);
+  }
+
+  /**
+   * Turn a score relative to the root into one relative to a position, for
+   * storing in a transposition table.
+   *
+   * @param score
+   *          the score
+   * @param ply
+   *          distance of the position from the root
+   * @return the score to store.
+   */
+  public static int toTable(final int score, final int ply) {
+    if (isWin(score)) {
+      return score + ply;
+    }
+    if (isLoss(score)) {
+      return score - ply;
+    }
+    return score;
+  }
+
+  /**
+   * Turn a score read from a transposition table back into one relative to the
+   * root.
+   *
+   * @param score
+   *          the stored score
+   * @param ply
+   *          distance of the position from the root
+   * @return the score.
+   */
+  public static int fromTable(final int score, final int ply) {
+    if (isWin(score)) {
+      return score - ply;
+    }
+    if (isLoss(score)) {
+      return score + ply;
+    }
+    return score;
+  }
+
+  /**
+   * Describe a score.
+   *
+   * @param score
+   *          the score
+   * @return "win in n", "loss in n" or the number.
+   */
+  public static String toString(final int score) {
+    if (isWin(score)) {
+      return "win in " + getDistance(score);
+    }
+    if (isLoss(score)) {
+      return "loss in " + getDistance(score);
+    }
+    return Integer.toString(score);
+  }
+}
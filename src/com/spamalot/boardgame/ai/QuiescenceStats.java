@@ -0,0 +1,130 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Counts of what the quiescence stage of a {@link NegaMax} search did.
+ *
+ * @author gej
+ *
+ */
+public final class QuiescenceStats {
+
+  /** Quiescence nodes looked at. */
+  private long nodes;
+
+  /** Nodes that returned the stand pat score at or above beta. */
+  private long standPatCutoffs;
+
+  /** Nodes skipped because no tactical move could reach alpha. */
+  private long deltaPrunes;
+
+  /** Nodes that stood pat because the node budget was used up. */
+  private long budgetStops;
+
+  /** Most quiescence plies below a leaf of the main search. */
+  private int maxDepth;
+
+  /**
+   * Start counting again.
+   */
+  void reset() {
+    this.nodes = 0;
+    this.standPatCutoffs = 0;
+    this.deltaPrunes = 0;
+    this.budgetStops = 0;
+    this.maxDepth = 0;
+  }
+
+  /**
+   * Count a node.
+   *
+   * @param depth
+   *          quiescence plies below the leaf
+   */
+  void countNode(final int depth) {
+    this.nodes++;
+    this.maxDepth = Math.max(this.maxDepth, depth);
+  }
+
+  /**
+   * Count a stand pat cutoff.
+   */
+  void countStandPatCutoff() {
+    this.standPatCutoffs++;
+  }
+
+  /**
+   * Count a delta prune.
+   */
+  void countDeltaPrune() {
+    this.deltaPrunes++;
+  }
+
+  /**
+   * Count a stop for the node budget.
+   */
+  void countBudgetStop() {
+    this.budgetStops++;
+  }
+
+  /**
+   * Get the number of quiescence nodes.
+   *
+   * @return the node count.
+   */
+  public long getNodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Get the number of stand pat cutoffs.
+   *
+   * @return the count.
+   */
+  public long getStandPatCutoffs() {
+    return this.standPatCutoffs;
+  }
+
+  /**
+   * Get the number of delta prunes.
+   *
+   * @return the count.
+   */
+  public long getDeltaPrunes() {
+    return this.deltaPrunes;
+  }
+
+  /**
+   * Get the number of stops for the node budget.
+   *
+   * @return the count.
+   */
+  public long getBudgetStops() {
+    return this.budgetStops;
+  }
+
+  /**
+   * Get the most quiescence plies below a leaf of the main search.
+   *
+   * @return the depth.
+   */
+  public int getMaxDepth() {
+    return this.maxDepth;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("QuiescenceStats [nodes=");
+    sb.append(this.nodes);
+    sb.append(", standPatCutoffs=");
+    sb.append(this.standPatCutoffs);
+    sb.append(", deltaPrunes=");
+    sb.append(this.deltaPrunes);
+    sb.append(", budgetStops=");
+    sb.append(this.budgetStops);
+    sb.append(", maxDepth=");
+    sb.append(this.maxDepth);
+    sb.append("]");
+    return sb.toString();
+  }
+}
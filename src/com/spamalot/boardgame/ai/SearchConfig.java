@@ -0,0 +1,416 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Switches and parameters of the selective search done by {@link NegaMax}.
+ * Everything is off by default, which gives a full width search.
+ *
+ * @author gej
+ *
+ */
+public final class SearchConfig {
+
+  /** Search late moves to a reduced depth first. */
+  private boolean lateMoveReductions;
+
+  /** Late move reductions are only done at this depth and deeper. */
+  private int lmrMinDepth = 3;
+
+  /** This many moves of a node are always searched to full depth. */
+  private int lmrFullDepthMoves = 3;
+
+  /** Skip moves near the leaves when the static evaluation is far below alpha. */
+  private boolean futilityPruning;
+
+  /** Futility pruning is only done at this depth and shallower. */
+  private int futilityMaxDepth = 2;
+
+  /** Margin per ply of depth left by which a move is assumed unable to gain. */
+  private int futilityMargin = 100;
+
+  /** Try passing before searching the moves, using the game's PASS move. */
+  private boolean nullMovePruning;
+
+  /** Null moves are only tried at this depth and deeper. */
+  private int nullMoveMinDepth = 3;
+
+  /** How much shallower than normal the null move is searched. */
+  private int nullMoveReduction = 2;
+
+  /**
+   * Check a null move fail high with a reduced search of the real moves. Turn
+   * on for games where passing can be better than any move.
+   */
+  private boolean nullMoveVerification = true;
+
+  /** Fitted model for ProbCut, or null for no ProbCut. */
+  private ProbCutModel probCutModel;
+
+  /** Standard deviations of confidence a ProbCut prediction needs. */
+  private double probCutThreshold = 1.5;
+
+  /** Search tactical moves below the leaves until the position is quiet. */
+  private boolean quiescence;
+
+  /** Most plies the quiescence stage goes below a leaf. */
+  private int quiescenceMaxDepth = 8;
+
+  /** Quiescence nodes allowed per search before leaves just stand pat. */
+  private long quiescenceNodeBudget = Long.MAX_VALUE;
+
+  /** Largest gain a tactical move is assumed to make, for delta pruning. */
+  private int deltaMargin = 200;
+
+  /**
+   * Check if late move reductions are on.
+   *
+   * @return true if on.
+   */
+  public boolean isLateMoveReductions() {
+    return this.lateMoveReductions;
+  }
+
+  /**
+   * Turn late move reductions on or off.
+   *
+   * @param on
+   *          true to turn on
+   */
+  public void setLateMoveReductions(final boolean on) {
+    this.lateMoveReductions = on;
+  }
+
+  /**
+   * Get the smallest depth late move reductions are done at.
+   *
+   * @return the depth.
+   */
+  public int getLmrMinDepth() {
+    return this.lmrMinDepth;
+  }
+
+  /**
+   * Set the smallest depth late move reductions are done at.
+   *
+   * @param depth
+   *          the depth
+   */
+  public void setLmrMinDepth(final int depth) {
+    this.lmrMinDepth = depth;
+  }
+
+  /**
+   * Get the number of moves searched to full depth before any are reduced.
+   *
+   * @return the number of moves.
+   */
+  public int getLmrFullDepthMoves() {
+    return this.lmrFullDepthMoves;
+  }
+
+  /**
+   * Set the number of moves searched to full depth before any are reduced.
+   *
+   * @param moves
+   *          the number of moves
+   */
+  public void setLmrFullDepthMoves(final int moves) {
+    this.lmrFullDepthMoves = moves;
+  }
+
+  /**
+   * Check if futility pruning is on.
+   *
+   * @return true if on.
+   */
+  public boolean isFutilityPruning() {
+    return this.futilityPruning;
+  }
+
+  /**
+   * Turn futility pruning on or off. When the static evaluation of a null
+   * window node near the leaves is more than the margin below alpha, the node
+   * searches its first move and then only the moves the game calls tactical,
+   * see {@link MinMaxSearchable#isTacticalMove(com.spamalot.boardgame.Move)}.
+   * The decision is made once for the whole node. It is not made per move.
+   *
+   * @param on
+   *          true to turn on
+   */
+  public void setFutilityPruning(final boolean on) {
+    this.futilityPruning = on;
+  }
+
+  /**
+   * Get the largest depth futility pruning is done at.
+   *
+   * @return the depth.
+   */
+  public int getFutilityMaxDepth() {
+    return this.futilityMaxDepth;
+  }
+
+  /**
+   * Set the largest depth futility pruning is done at.
+   *
+   * @param depth
+   *          the depth
+   */
+  public void setFutilityMaxDepth(final int depth) {
+    this.futilityMaxDepth = depth;
+  }
+
+  /**
+   * Get the futility margin per ply of depth left.
+   *
+   * @return the margin.
+   */
+  public int getFutilityMargin() {
+    return this.futilityMargin;
+  }
+
+  /**
+   * Set the futility margin per ply of depth left, in evaluation units.
+   *
+   * @param margin
+   *          the margin
+   */
+  public void setFutilityMargin(final int margin) {
+    this.futilityMargin = margin;
+  }
+
+  /**
+   * Check if null move pruning is on.
+   *
+   * @return true if on.
+   */
+  public boolean isNullMovePruning() {
+    return this.nullMovePruning;
+  }
+
+  /**
+   * Turn null move pruning on or off. It only happens for games that supply a
+   * PASS move through {@link MinMaxSearchable#getPassMove()}.
+   *
+   * @param on
+   *          true to turn on
+   */
+  public void setNullMovePruning(final boolean on) {
+    this.nullMovePruning = on;
+  }
+
+  /**
+   * Get the smallest depth null moves are tried at.
+   *
+   * @return the depth.
+   */
+  public int getNullMoveMinDepth() {
+    return this.nullMoveMinDepth;
+  }
+
+  /**
+   * Set the smallest depth null moves are tried at.
+   *
+   * @param depth
+   *          the depth
+   */
+  public void setNullMoveMinDepth(final int depth) {
+    this.nullMoveMinDepth = depth;
+  }
+
+  /**
+   * Get the null move depth reduction.
+   *
+   * @return the reduction.
+   */
+  public int getNullMoveReduction() {
+    return this.nullMoveReduction;
+  }
+
+  /**
+   * Set the null move depth reduction.
+   *
+   * @param reduction
+   *          the reduction
+   */
+  public void setNullMoveReduction(final int reduction) {
+    this.nullMoveReduction = reduction;
+  }
+
+  /**
+   * Check if null move fail highs are verified.
+   *
+   * @return true if verified.
+   */
+  public boolean isNullMoveVerification() {
+    return this.nullMoveVerification;
+  }
+
+  /**
+   * Set whether null move fail highs are verified.
+   *
+   * @param on
+   *          true to verify
+   */
+  public void setNullMoveVerification(final boolean on) {
+    this.nullMoveVerification = on;
+  }
+
+  /**
+   * Get the ProbCut model.
+   *
+   * @return the model, or null if ProbCut is off.
+   */
+  public ProbCutModel getProbCutModel() {
+    return this.probCutModel;
+  }
+
+  /**
+   * Set the ProbCut model. ProbCut is tried at the depths and phases the model
+   * has a fit for.
+   *
+   * @param model
+   *          the model, or null to turn ProbCut off
+   */
+  public void setProbCutModel(final ProbCutModel model) {
+    this.probCutModel = model;
+  }
+
+  /**
+   * Get the ProbCut threshold.
+   *
+   * @return the threshold in standard deviations.
+   */
+  public double getProbCutThreshold() {
+    return this.probCutThreshold;
+  }
+
+  /**
+   * Set the ProbCut threshold. Higher is safer and prunes less.
+   *
+   * @param threshold
+   *          the threshold in standard deviations
+   */
+  public void setProbCutThreshold(final double threshold) {
+    this.probCutThreshold = threshold;
+  }
+
+  /**
+   * Check if the quiescence stage is on.
+   *
+   * @return true if on.
+   */
+  public boolean isQuiescence() {
+    return this.quiescence;
+  }
+
+  /**
+   * Turn the quiescence stage on or off. It uses
+   * {@link MinMaxSearchable#isQuiet()} and
+   * {@link MinMaxSearchable#generateTacticalMoves(MoveBuffer)}.
+   *
+   * @param on
+   *          true to turn on
+   */
+  public void setQuiescence(final boolean on) {
+    this.quiescence = on;
+  }
+
+  /**
+   * Get the most plies the quiescence stage goes below a leaf.
+   *
+   * @return the depth.
+   */
+  public int getQuiescenceMaxDepth() {
+    return this.quiescenceMaxDepth;
+  }
+
+  /**
+   * Set the most plies the quiescence stage goes below a leaf.
+   *
+   * @param depth
+   *          the depth
+   */
+  public void setQuiescenceMaxDepth(final int depth) {
+    this.quiescenceMaxDepth = depth;
+  }
+
+  /**
+   * Get the quiescence node budget.
+   *
+   * @return the number of nodes.
+   */
+  public long getQuiescenceNodeBudget() {
+    return this.quiescenceNodeBudget;
+  }
+
+  /**
+   * Set the number of quiescence nodes allowed per search. Once they are used
+   * up the leaves are evaluated as they are.
+   *
+   * @param nodes
+   *          the number of nodes
+   */
+  public void setQuiescenceNodeBudget(final long nodes) {
+    this.quiescenceNodeBudget = nodes;
+  }
+
+  /**
+   * Get the delta pruning margin.
+   *
+   * @return the margin.
+   */
+  public int getDeltaMargin() {
+    return this.deltaMargin;
+  }
+
+  /**
+   * Set the delta pruning margin: the largest gain a tactical move is assumed
+   * to make, in evaluation units. A quiescence node whose stand pat score is
+   * further than this below alpha is not searched.
+   *
+   * @param margin
+   *          the margin
+   */
+  public void setDeltaMargin(final int margin) {
+    this.deltaMargin = margin;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SearchConfig [lateMoveReductions=");
+    sb.append(this.lateMoveReductions);
+    sb.append(", lmrMinDepth=");
+    sb.append(this.lmrMinDepth);
+    sb.append(", lmrFullDepthMoves=");
+    sb.append(this.lmrFullDepthMoves);
+    sb.append(", futilityPruning=");
+    sb.append(this.futilityPruning);
+    sb.append(", futilityMaxDepth=");
+    sb.append(this.futilityMaxDepth);
+    sb.append(", futilityMargin=");
+    sb.append(this.futilityMargin);
+    sb.append(", nullMovePruning=");
+    sb.append(this.nullMovePruning);
+    sb.append(", nullMoveMinDepth=");
+    sb.append(this.nullMoveMinDepth);
+    sb.append(", nullMoveReduction=");
+    sb.append(this.nullMoveReduction);
+    sb.append(", nullMoveVerification=");
+    sb.append(this.nullMoveVerification);
+    sb.append(", probCut=");
+    sb.append(this.probCutModel != null);
+    sb.append(", probCutThreshold=");
+    sb.append(this.probCutThreshold);
+    sb.append(", quiescence=");
+    sb.append(this.quiescence);
+    sb.append(", quiescenceMaxDepth=");
+    sb.append(this.quiescenceMaxDepth);
+    sb.append(", quiescenceNodeBudget=");
+    sb.append(this.quiescenceNodeBudget);
+    sb.append(", deltaMargin=");
+    sb.append(this.deltaMargin);
+    sb.append("]");
+    return sb.toString();
+  }
+}
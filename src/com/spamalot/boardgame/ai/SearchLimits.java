@@ -0,0 +1,213 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * When a {@link NegaMax} search should stop: a depth, a time limit, a node
+ * budget or cancellation from another thread, whichever comes first. Time,
+ * nodes and cancellation are checked once every check interval nodes, so the
+ * cost of checking does not grow with the search.
+ *
+ * <p>
+ * The time limit is a hard deadline that stops the search mid iteration. A
+ * soft time limit can be set as well: the search aims to finish its last
+ * iteration by then, so no new iteration is started once half of it has
+ * passed. It is stretched while the best move keeps changing between
+ * iterations.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class SearchLimits {
+
+  /** Deepest iteration to search. */
+  private int maxDepth = 64;
+
+  /** Milliseconds the search may take, or -1 for no limit. */
+  private long timeLimitMillis = -1;
+
+  /** Milliseconds after which no new iteration is started, or -1. */
+  private long softTimeLimitMillis = -1;
+
+  /** How much each recent change of best move stretches the soft limit. */
+  private double instabilityWeight = 0.5;
+
+  /** Nodes the search may look at, or -1 for no limit. */
+  private long nodeLimit = -1;
+
+  /** Nodes between checks of the limits. */
+  private int checkInterval = 1024;
+
+  /** Set by another thread to stop the search. */
+  private volatile boolean cancelled;
+
+  /**
+   * Get the deepest iteration to search.
+   *
+   * @return the depth.
+   */
+  public int getMaxDepth() {
+    return this.maxDepth;
+  }
+
+  /**
+   * Set the deepest iteration to search.
+   *
+   * @param depth
+   *          the depth
+   */
+  public void setMaxDepth(final int depth) {
+    this.maxDepth = depth;
+  }
+
+  /**
+   * Get the time limit.
+   *
+   * @return the milliseconds the search may take, or -1 for no limit.
+   */
+  public long getTimeLimitMillis() {
+    return this.timeLimitMillis;
+  }
+
+  /**
+   * Set the time limit, counted from the start of the search.
+   *
+   * @param millis
+   *          the milliseconds the search may take, or -1 for no limit
+   */
+  public void setTimeLimitMillis(final long millis) {
+    this.timeLimitMillis = millis;
+  }
+
+  /**
+   * Get the soft time limit.
+   *
+   * @return the milliseconds after which no new iteration is started, or -1.
+   */
+  public long getSoftTimeLimitMillis() {
+    return this.softTimeLimitMillis;
+  }
+
+  /**
+   * Set the soft time limit, counted from the start of the search.
+   *
+   * @param millis
+   *          the milliseconds after which no new iteration is started, or -1
+   *          for no limit
+   */
+  public void setSoftTimeLimitMillis(final long millis) {
+    this.softTimeLimitMillis = millis;
+  }
+
+  /**
+   * Get the instability weight.
+   *
+   * @return the weight.
+   */
+  public double getInstabilityWeight() {
+    return this.instabilityWeight;
+  }
+
+  /**
+   * Set how much a change of best move stretches the soft time limit. The
+   * search keeps an instability count that is halved every iteration and goes
+   * up by one when the best move changes; the soft limit is multiplied by one
+   * plus the weight times that count.
+   *
+   * @param weight
+   *          the weight, 0 for a fixed soft limit
+   */
+  public void setInstabilityWeight(final double weight) {
+    this.instabilityWeight = weight;
+  }
+
+  /**
+   * Get the soft time limit after stretching for instability.
+   *
+   * @param instability
+   *          the instability count
+   * @return the milliseconds, or -1 for no limit.
+   */
+  public long getStretchedSoftTimeLimitMillis(final double instability) {
+    if (this.softTimeLimitMillis < 0) {
+      return -1;
+    }
+    return (long) (this.softTimeLimitMillis * (1 + this.instabilityWeight * instability));
+  }
+
+  /**
+   * Get the node budget.
+   *
+   * @return the nodes the search may look at, or -1 for no limit.
+   */
+  public long getNodeLimit() {
+    return this.nodeLimit;
+  }
+
+  /**
+   * Set the node budget. Quiescence nodes count towards it.
+   *
+   * @param nodes
+   *          the nodes the search may look at, or -1 for no limit
+   */
+  public void setNodeLimit(final long nodes) {
+    this.nodeLimit = nodes;
+  }
+
+  /**
+   * Get the number of nodes between checks of the limits.
+   *
+   * @return the check interval.
+   */
+  public int getCheckInterval() {
+    return this.checkInterval;
+  }
+
+  /**
+   * Set the number of nodes between checks of the limits. Smaller reacts
+   * faster, larger costs less.
+   *
+   * @param nodes
+   *          the check interval, at least 1
+   */
+  public void setCheckInterval(final int nodes) {
+    this.checkInterval = Math.max(1, nodes);
+  }
+
+  /**
+   * Stop a search using these limits as soon as it next checks. Safe to call
+   * from any thread.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Check if the search was cancelled.
+   *
+   * @return true if cancelled.
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SearchLimits [maxDepth=");
+    sb.append(this.maxDepth);
+    sb.append(", timeLimitMillis=");
+    sb.append(this.timeLimitMillis);
+    sb.append(", softTimeLimitMillis=");
+    sb.append(this.softTimeLimitMillis);
+    sb.append(", instabilityWeight=");
+    sb.append(this.instabilityWeight);
+    sb.append(", nodeLimit=");
+    sb.append(this.nodeLimit);
+    sb.append(", checkInterval=");
+    sb.append(this.checkInterval);
+    sb.append(", cancelled=");
+    sb.append(this.cancelled);
+    sb.append("]");
+    return sb.toString();
+  }
+}
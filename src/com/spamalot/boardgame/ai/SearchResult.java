@@ -0,0 +1,174 @@
+package com.spamalot.boardgame.ai;
+
+import com.spamalot.boardgame.Move;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a {@link NegaMax} search found.
+ *
+ * @author gej
+ *
+ * @param <S>
+ *          Type of Move searched
+ */
+public final class SearchResult<S extends Move> {
+
+  /** The move to play. */
+  private final S bestMove;
+
+  /** Score of the best move for the side to move. */
+  private final int score;
+
+  /** Depth of the last completed iteration. */
+  private final int depth;
+
+  /** Principal variation of the last completed iteration, as packed moves. */
+  private final int[] principalVariation;
+
+  /** Nodes looked at, including quiescence nodes. */
+  private final long nodes;
+
+  /** Time taken. */
+  private final long elapsedMillis;
+
+  /** True if a limit stopped the search inside an iteration. */
+  private final boolean stopped;
+
+  /** Root moves fully searched by the unfinished iteration. */
+  private final List<S> partialResults;
+
+  /**
+   * Construct a SearchResult.
+   *
+   * @param move
+   *          the move to play
+   * @param value
+   *          score of the move
+   * @param completedDepth
+   *          depth of the last completed iteration
+   * @param pv
+   *          principal variation as packed moves
+   * @param nodeCount
+   *          nodes looked at
+   * @param millis
+   *          time taken
+   * @param wasStopped
+   *          true if a limit stopped the search inside an iteration
+   * @param partial
+   *          root moves fully searched by the unfinished iteration
+   */
+  SearchResult(final S move, final int value, final int completedDepth, final int[] pv, final long nodeCount,
+      final long millis, final boolean wasStopped, final List<S> partial) {
+    this.bestMove = move;
+    this.score = value;
+    this.depth = completedDepth;
+    this.principalVariation = pv;
+    this.nodes = nodeCount;
+    this.elapsedMillis = millis;
+    this.stopped = wasStopped;
+    this.partialResults = Collections.unmodifiableList(partial);
+  }
+
+  /**
+   * Get the move to play: the best move of the last completed iteration. If no
+   * iteration completed it is the partial result with the best exact score,
+   * failing that the best move of an earlier pass, or else the first move in
+   * search order. Move objects are shared with the search, so read the score
+   * from {@link #getScore()} rather than from the move.
+   *
+   * @return the move, or null if there is no legal move.
+   */
+  public S getBestMove() {
+    return this.bestMove;
+  }
+
+  /**
+   * Get the score of the best move. See {@link ProvenScore} for won and lost
+   * positions.
+   *
+   * @return the score for the side to move.
+   */
+  public int getScore() {
+    return this.score;
+  }
+
+  /**
+   * Get the depth of the last completed iteration.
+   *
+   * @return the depth, 0 if none completed.
+   */
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Get the principal variation of the last completed iteration.
+   *
+   * @return a copy of the packed moves.
+   */
+  public int[] getPrincipalVariation() {
+    return this.principalVariation.clone();
+  }
+
+  /**
+   * Get the number of nodes looked at.
+   *
+   * @return the node count.
+   */
+  public long getNodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Get the time the search took.
+   *
+   * @return the milliseconds.
+   */
+  public long getElapsedMillis() {
+    return this.elapsedMillis;
+  }
+
+  /**
+   * Check if a limit stopped the search inside an iteration.
+   *
+   * @return true if stopped.
+   */
+  public boolean isStopped() {
+    return this.stopped;
+  }
+
+  /**
+   * Get the root moves the unfinished iteration searched completely, in the
+   * order searched, with their evaluations from that iteration. Only moves
+   * that raised alpha inside the aspiration window have exact evaluations; the
+   * others are bounds.
+   *
+   * @return the moves, empty if the last iteration finished.
+   */
+  public List<S> getPartialResults() {
+    return this.partialResults;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SearchResult [bestMove=");
+    sb.append(this.bestMove);
+    sb.append(", score=");
+    sb.append(ProvenScore.toString(this.score));
+    sb.append(", depth=");
+    sb.append(this.depth);
+    sb.append(", nodes=");
+    sb.append(this.nodes);
+    sb.append(", elapsedMillis=");
+    sb.append(this.elapsedMillis);
+    sb.append(", stopped=");
+    sb.append(this.stopped);
+    sb.append(", partialResults=");
+    sb.append(this.partialResults.size());
+    sb.append("]");
+    return sb.toString();
+  }
+}
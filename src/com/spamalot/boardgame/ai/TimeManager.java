@@ -0,0 +1,174 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Splits the time left on a clock into the {@link SearchLimits} of one move.
+ *
+ * <p>
+ * In the flip games this library is for, nearly every move fills an empty
+ * Square, so the side to move has about half the empty Squares left as moves.
+ * The soft limit is the time left shared over those moves plus most of the
+ * increment. The hard limit is a multiple of that, capped to a fraction of the
+ * time left and kept clear of a safety margin, so an unstable search can think
+ * longer without losing on time.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class TimeManager {
+
+  /** Fewest moves the time left is shared over. */
+  private int minMovesToGo = 4;
+
+  /** Hard limit as a multiple of the soft limit. */
+  private double hardFactor = 3.0;
+
+  /** Largest fraction of the time left one move may use. */
+  private double maxFraction = 0.5;
+
+  /** Time kept back for overhead outside the search. */
+  private long safetyMillis = 50;
+
+  /** How much each recent change of best move stretches the soft limit. */
+  private double instabilityWeight = 0.5;
+
+  /**
+   * Get limits for a move.
+   *
+   * @param remainingMillis
+   *          time left on the clock of the side to move
+   * @param incrementMillis
+   *          time added after the move
+   * @param empty
+   *          number of empty Squares
+   * @return the limits, with no depth limit.
+   */
+  public SearchLimits limitsFor(final long remainingMillis, final long incrementMillis, final int empty) {
+    long usable = Math.max(1, remainingMillis - this.safetyMillis);
+    int movesToGo = Math.max(this.minMovesToGo, (empty + 1) / 2);
+
+    long soft = usable / movesToGo + incrementMillis * 4 / 5;
+    long hard = (long) Math.min(soft * this.hardFactor, usable * this.maxFraction + incrementMillis);
+    hard = Math.max(1, Math.min(hard, usable));
+    soft = Math.max(1, Math.min(soft, hard));
+
+    SearchLimits limits = new SearchLimits();
+    limits.setSoftTimeLimitMillis(soft);
+    limits.setTimeLimitMillis(hard);
+    limits.setInstabilityWeight(this.instabilityWeight);
+    return limits;
+  }
+
+  /**
+   * Get the fewest moves the time left is shared over.
+   *
+   * @return the number of moves.
+   */
+  public int getMinMovesToGo() {
+    return this.minMovesToGo;
+  }
+
+  /**
+   * Set the fewest moves the time left is shared over.
+   *
+   * @param moves
+   *          the number of moves, at least 1
+   */
+  public void setMinMovesToGo(final int moves) {
+    this.minMovesToGo = Math.max(1, moves);
+  }
+
+  /**
+   * Get the hard limit as a multiple of the soft limit.
+   *
+   * @return the factor.
+   */
+  public double getHardFactor() {
+    return this.hardFactor;
+  }
+
+  /**
+   * Set the hard limit as a multiple of the soft limit.
+   *
+   * @param factor
+   *          the factor
+   */
+  public void setHardFactor(final double factor) {
+    this.hardFactor = factor;
+  }
+
+  /**
+   * Get the largest fraction of the time left one move may use.
+   *
+   * @return the fraction.
+   */
+  public double getMaxFraction() {
+    return this.maxFraction;
+  }
+
+  /**
+   * Set the largest fraction of the time left one move may use.
+   *
+   * @param fraction
+   *          the fraction
+   */
+  public void setMaxFraction(final double fraction) {
+    this.maxFraction = fraction;
+  }
+
+  /**
+   * Get the time kept back for overhead.
+   *
+   * @return the milliseconds.
+   */
+  public long getSafetyMillis() {
+    return this.safetyMillis;
+  }
+
+  /**
+   * Set the time kept back for overhead outside the search.
+   *
+   * @param millis
+   *          the milliseconds
+   */
+  public void setSafetyMillis(final long millis) {
+    this.safetyMillis = millis;
+  }
+
+  /**
+   * Get the instability weight given to the limits.
+   *
+   * @return the weight.
+   */
+  public double getInstabilityWeight() {
+    return this.instabilityWeight;
+  }
+
+  /**
+   * Set the instability weight given to the limits. See
+   * {@link SearchLimits#setInstabilityWeight(double)}.
+   *
+   * @param weight
+   *          the weight
+   */
+  public void setInstabilityWeight(final double weight) {
+    this.instabilityWeight = weight;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("TimeManager [minMovesToGo=");
+    sb.append(this.minMovesToGo);
+    sb.append(", hardFactor=");
+    sb.append(this.hardFactor);
+    sb.append(", maxFraction=");
+    sb.append(this.maxFraction);
+    sb.append(", safetyMillis=");
+    sb.append(this.safetyMillis);
+    sb.append(", instabilityWeight=");
+    sb.append(this.instabilityWeight);
+    sb.append("]");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,140 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * Packing of a transposition table entry into one long.
+ *
+ * <p>
+ * Bits 0-25 hold the best move as a
+ * {@link com.spamalot.boardgame.PackedMove PackedMove}, bits 26-47 the score as
+ * a signed 22 bit value, bits 48-55 the depth, bits 56-57 the bound and bits
+ * 58-63 the age of the search that stored it. The bound is never zero, so an
+ * entry is never zero and zero can mean a miss.
+ * </p>
+ *
+ * @author gej
+ *
+ */
+public final class TranspositionEntry {
+
+  /** No entry was found. */
+  public static final long MISS = 0L;
+
+  /** The score is exact. */
+  public static final int EXACT = 1;
+
+  /** The score is a lower bound: the search failed high. */
+  public static final int LOWER = 2;
+
+  /** The score is an upper bound: the search failed low. */
+  public static final int UPPER = 3;
+
+  /** Largest score that can be stored. Larger scores are clamped. */
+  public static final int MAX_SCORE = (1 << 21) - 1;
+
+  /** Largest depth that can be stored. */
+  public static final int MAX_DEPTH = 255;
+
+  /** Number of distinct ages. */
+  public static final int AGES = 64;
+
+  /** Mask of the move. */
+  private static final long MOVE_MASK = (1L << 26) - 1;
+
+  /** Shift of the score. */
+  private static final int SCORE_SHIFT = 26;
+
+  /** Mask of the score after shifting. */
+  private static final long SCORE_MASK = (1L << 22) - 1;
+
+  /** Shift of the depth. */
+  private static final int DEPTH_SHIFT = 48;
+
+  /** Shift of the bound. */
+  private static final int BOUND_SHIFT = 56;
+
+  /** Shift of the age. */
+  private static final int AGE_SHIFT = 58;
+
+  /**
+   * Utility class.
+   */
+  private TranspositionEntry() {
+  }
+
+  /**
+   * Pack an entry.
+   *
+   * @param depth
+   *          depth searched, clamped to 0..{@value #MAX_DEPTH}
+   * @param bound
+   *          {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+   * @param score
+   *          the score, clamped to +/-{@value #MAX_SCORE}
+   * @param move
+   *          the best move as a packed move, or 0
+   * @param age
+   *          age of the search, taken modulo {@value #AGES}
+   * @return the packed entry.
+   */
+  public static long pack(final int depth, final int bound, final int score, final int move, final int age) {
+    int s = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    int d = Math.max(0, Math.min(MAX_DEPTH, depth));
+    return (move & MOVE_MASK) | ((s & SCORE_MASK) << SCORE_SHIFT) | ((long) d << DEPTH_SHIFT)
+        | ((long) bound << BOUND_SHIFT) | ((long) (age & (AGES - 1)) << AGE_SHIFT);
+  }
+
+  /**
+   * Get the best move of an entry.
+   *
+   * @param entry
+   *          the packed entry
+   * @return the packed move, or 0.
+   */
+  public static int getMove(final long entry) {
+    return (int) (entry & MOVE_MASK);
+  }
+
+  /**
+   * Get the score of an entry.
+   *
+   * @param entry
+   *          the packed entry
+   * @return the score.
+   */
+  public static int getScore(final long entry) {
+    return (int) ((entry << (64 - SCORE_SHIFT - 22)) >> (64 - 22));
+  }
+
+  /**
+   * Get the depth of an entry.
+   *
+   * @param entry
+   *          the packed entry
+   * @return the depth.
+   */
+  public static int getDepth(final long entry) {
+    return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+  }
+
+  /**
+   * Get the bound of an entry.
+   *
+   * @param entry
+   *          the packed entry
+   * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+   */
+  public static int getBound(final long entry) {
+    return (int) (entry >>> BOUND_SHIFT) & 3;
+  }
+
+  /**
+   * Get the age of an entry.
+   *
+   * @param entry
+   *          the packed entry
+   * @return the age.
+   */
+  public static int getAge(final long entry) {
+    return (int) (entry >>> AGE_SHIFT);
+  }
+}
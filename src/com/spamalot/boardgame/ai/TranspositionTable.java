@@ -0,0 +1,80 @@
+package com.spamalot.boardgame.ai;
+
+/**
+ * A cache of search results keyed by Zobrist key. Implementations are lock
+ * free and safe to share between search threads: an entry is stored as its key
+ * XOR its data next to the data, so an entry torn by a concurrent write fails
+ * verification and reads as a miss.
+ *
+ * @author gej
+ *
+ * @see TranspositionEntry
+ */
+public interface TranspositionTable {
+
+  /**
+   * Look up a position.
+   *
+   * @param key
+   *          Zobrist key of the position
+   * @return the packed entry, or {@link TranspositionEntry#MISS}.
+   */
+  long probe(long key);
+
+  /**
+   * Store the result of searching a position.
+   *
+   * @param key
+   *          Zobrist key of the position
+   * @param depth
+   *          depth searched
+   * @param bound
+   *          {@link TranspositionEntry#EXACT}, {@link TranspositionEntry#LOWER}
+   *          or {@link TranspositionEntry#UPPER}
+   * @param score
+   *          the score from the side to move's point of view
+   * @param move
+   *          the best move as a packed move, or 0
+   */
+  void store(long key, int depth, int bound, int score, int move);
+
+  /**
+   * Start a new search. Entries from older searches are replaced first.
+   * Searchers sharing the table should use {@link #newSearch(int)} instead, so
+   * that the age moves on once however many of them start the search.
+   */
+  default void newSearch() {
+    newSearch(getAge());
+  }
+
+  /**
+   * Start a new search unless another searcher already has. The age moves on
+   * only if it is still the age the caller last saw, so threads that each
+   * start the same search with the same seen age move it on once.
+   *
+   * @param seenAge
+   *          the age returned by the caller's previous call, or
+   *          {@link #getAge()} before its first search
+   * @return the age of the search now under way, to pass next time.
+   */
+  int newSearch(int seenAge);
+
+  /**
+   * Get the age of the current search.
+   *
+   * @return the age.
+   */
+  int getAge();
+
+  /**
+   * Remove every entry.
+   */
+  void clear();
+
+  /**
+   * Get the number of entries the table can hold.
+   *
+   * @return the capacity.
+   */
+  long getCapacity();
+}